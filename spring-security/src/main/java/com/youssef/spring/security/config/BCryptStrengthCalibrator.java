@@ -0,0 +1,57 @@
+package com.youssef.spring.security.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the highest BCrypt work factor whose hash time stays within a target on this machine.
+ * Each step doubles the cost, so the search stops as soon as the next step would overshoot.
+ */
+@Slf4j
+public final class BCryptStrengthCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        warmUp();
+        int chosen = minStrength;
+        long chosenMillis = -1;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            long elapsedMillis = measure(strength);
+            if (elapsedMillis > targetMillis && strength > minStrength) {
+                break;
+            }
+            chosen = strength;
+            chosenMillis = elapsedMillis;
+            if (elapsedMillis * 2 > targetMillis) {
+                break;
+            }
+        }
+        log.info("BCrypt strength calibrated to {} ({} ms per hash, target {} ms); pin it with "
+                + "app.security.password.strength={} and calibrate=false", chosen, chosenMillis, targetMillis, chosen);
+        return chosen;
+    }
+
+    // Gets the BCrypt code compiled before timing, otherwise the first step is measured in the interpreter.
+    private static void warmUp() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        for (int i = 0; i < 200; i++) {
+            encoder.encode(SAMPLE_PASSWORD);
+        }
+    }
+
+    // Best of two runs, so a one-off JIT or GC pause does not push the strength down.
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+}
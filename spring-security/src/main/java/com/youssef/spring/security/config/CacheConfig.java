@@ -0,0 +1,61 @@
+package com.youssef.spring.security.config;
+
+import com.youssef.spring.security.entity.User;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    // Evictions triggered inside a transaction are applied after commit, so a concurrent
+    // reader cannot put the pre-commit row back into the cache.
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new UserCopyingCache(name, cache, isAllowNullValues());
+            }
+        };
+        cacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    /**
+     * Stores a copy of each {@link User} and hands out a copy on every hit, so threads never
+     * share an instance: a caller changing the user it got (a login sets {@code lastLogin})
+     * changes neither what others read nor what a later {@code save} of another copy writes.
+     */
+    static class UserCopyingCache extends CaffeineCache {
+
+        UserCopyingCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                         boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        protected Object toStoreValue(Object userValue) {
+            return super.toStoreValue(copy(userValue));
+        }
+
+        @Override
+        protected Object fromStoreValue(Object storeValue) {
+            return copy(super.fromStoreValue(storeValue));
+        }
+
+        private static Object copy(Object value) {
+            return value instanceof User user ? user.copy() : value;
+        }
+    }
+}
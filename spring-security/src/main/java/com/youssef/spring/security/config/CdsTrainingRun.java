@@ -0,0 +1,27 @@
+package com.youssef.spring.security.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code app.startup.training-run=true}: stops the application as soon as it is ready. The
+ * fast-startup build starts it once this way under {@code -XX:ArchiveClassesAtExit}, so the AppCDS
+ * archive holds every class a startup loads. Read at runtime, not as a condition: with AOT,
+ * conditions are settled at build time.
+ */
+@Component
+public class CdsTrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    @Value("${app.startup.training-run:false}")
+    private boolean trainingRun;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (trainingRun) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.youssef.spring.security.config;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.WebUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the pending OAuth2 authorization request in a cookie instead of the {@code HttpSession},
+ * so the callback can land on any node and no session is ever created.
+ * <p>
+ * The cookie is {@code base64url(version, iv, AES-256-GCM(json))}: GCM both hides the request
+ * (state, PKCE verifier, nonce) and rejects any cookie we did not write. The JSON carries its own
+ * expiry, checked on top of the cookie's {@code Max-Age}.
+ */
+@Component
+public class CookieOAuth2AuthorizationRequestRepository
+        implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+    static final String COOKIE_NAME = "oauth2_auth_request";
+
+    private static final byte VERSION = 1;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<>() {
+    };
+
+    private final SecretKeySpec key;
+    private final int maxAgeSeconds;
+    private final boolean secure;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecureRandom random = new SecureRandom();
+
+    public CookieOAuth2AuthorizationRequestRepository(
+            @Value("${app.oauth2.cookie.secret:${app.jwt.secret}}") String secret,
+            @Value("${app.oauth2.cookie.max-age-seconds:180}") int maxAgeSeconds,
+            @Value("${app.oauth2.cookie.secure:true}") boolean secure) {
+        this.key = new SecretKeySpec(sha256("oauth2-cookie:" + secret), "AES");
+        this.maxAgeSeconds = maxAgeSeconds;
+        this.secure = secure;
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+        String state = request.getParameter(OAuth2ParameterNames.STATE);
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (state == null || cookie == null) {
+            return null;
+        }
+        OAuth2AuthorizationRequest authorizationRequest = decode(cookie.getValue());
+        return authorizationRequest != null && state.equals(authorizationRequest.getState())
+                ? authorizationRequest : null;
+    }
+
+    @Override
+    public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest,
+                                         HttpServletRequest request, HttpServletResponse response) {
+        if (authorizationRequest == null) {
+            writeCookie(response, "", 0);
+            return;
+        }
+        writeCookie(response, encode(authorizationRequest), maxAgeSeconds);
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request,
+                                                                 HttpServletResponse response) {
+        OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+        if (authorizationRequest != null) {
+            writeCookie(response, "", 0);
+        }
+        return authorizationRequest;
+    }
+
+    private void writeCookie(HttpServletResponse response, String value, int maxAge) {
+        // Lax: the provider's redirect back is a top-level GET, which still carries the cookie.
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+                .httpOnly(true)
+                .secure(secure)
+                .path("/")
+                .sameSite("Lax")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    String encode(OAuth2AuthorizationRequest authorizationRequest) {
+        // Short keys keep the cookie small; authorizationRequestUri is rebuilt from the rest.
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("e", System.currentTimeMillis() / 1000 + maxAgeSeconds);
+        fields.put("u", authorizationRequest.getAuthorizationUri());
+        fields.put("c", authorizationRequest.getClientId());
+        fields.put("r", authorizationRequest.getRedirectUri());
+        fields.put("s", authorizationRequest.getScopes());
+        fields.put("st", authorizationRequest.getState());
+        fields.put("p", authorizationRequest.getAdditionalParameters());
+        fields.put("a", authorizationRequest.getAttributes());
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(new byte[]{VERSION});
+            byte[] sealed = cipher.doFinal(objectMapper.writeValueAsBytes(fields));
+            return ENCODER.encodeToString(ByteBuffer.allocate(1 + IV_LENGTH + sealed.length)
+                    .put(VERSION).put(iv).put(sealed).array());
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not encrypt the OAuth2 authorization request", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    OAuth2AuthorizationRequest decode(String value) {
+        try {
+            byte[] bytes = DECODER.decode(value);
+            if (bytes.length <= 1 + IV_LENGTH || bytes[0] != VERSION) {
+                return null;
+            }
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, bytes, 1, IV_LENGTH));
+            cipher.updateAAD(new byte[]{VERSION});
+            byte[] json = cipher.doFinal(bytes, 1 + IV_LENGTH, bytes.length - 1 - IV_LENGTH);
+            Map<String, Object> fields = objectMapper.readValue(json, JSON_MAP);
+            if (((Number) fields.get("e")).longValue() < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return OAuth2AuthorizationRequest.authorizationCode()
+                    .authorizationUri((String) fields.get("u"))
+                    .clientId((String) fields.get("c"))
+                    .redirectUri((String) fields.get("r"))
+                    .scopes(new LinkedHashSet<>((List<String>) fields.get("s")))
+                    .state((String) fields.get("st"))
+                    .additionalParameters((Map<String, Object>) fields.get("p"))
+                    .attributes((Map<String, Object>) fields.get("a"))
+                    .build();
+        } catch (Exception e) {
+            // Tampered, written with another key, or not ours at all: as if there were no cookie.
+            return null;
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.youssef.spring.security.config;
 
 
+import com.youssef.spring.security.entity.Role;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.service.TokenRevocationStore;
+import com.youssef.spring.security.service.TokenVersionService;
 import com.youssef.spring.security.service.UserService;
+import com.youssef.spring.security.util.JwtTokenCache;
 import com.youssef.spring.security.util.JwtUtil;
+import com.youssef.spring.security.util.JwtVerification;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,31 +26,98 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
+    private final JwtTokenCache jwtTokenCache;
     private final UserService userService;
+    private final TokenVersionService tokenVersionService;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+
+    @Value("${app.jwt.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
+    public JwtAuthenticationFilter(JwtTokenCache jwtTokenCache, UserService userService,
+                                   TokenVersionService tokenVersionService, TokenRevocationStore tokenRevocationStore,
+                                   MeterRegistry meterRegistry) {
+        this.jwtTokenCache = jwtTokenCache;
+        this.userService = userService;
+        this.tokenVersionService = tokenVersionService;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.authenticatedTimer = filterTimer("authenticated", meterRegistry);
+        this.rejectedTimer = filterTimer("rejected", meterRegistry);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String jwt = getJwtFromRequest(request);
 
-        if (StringUtils.hasText(jwt) && jwtUtil.validateToken(jwt)) {
-            String username = jwtUtil.getUsernameFromToken(jwt);
-            UserDetails userDetails = userService.loadUserByUsername(username);
+        // Only requests carrying a token are timed, and only up to the rest of the chain.
+        if (StringUtils.hasText(jwt)) {
+            long start = System.nanoTime();
+            JwtVerification verification = jwtTokenCache.verify(jwt);
+            if (verification.isValid() && !isRevoked(verification.getClaims())) {
+                if (statelessEnabled && verification.getClaims().containsKey(JwtUtil.CLAIM_USER_ID)) {
+                    authenticateFromClaims(request, verification.getClaims());
+                } else {
+                    authenticate(request, verification.getUsername());
+                }
+            }
+            Timer timer = SecurityContextHolder.getContext().getAuthentication() != null
+                    ? authenticatedTimer : rejectedTimer;
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static Timer filterTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.filter")
+                .description("Time JwtAuthenticationFilter spends authenticating a bearer token")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Checked after the token cache on purpose: a cached verification can be revoked later.
+    private boolean isRevoked(Claims claims) {
+        String tokenId = claims.getId();
+        return tokenId != null && tokenRevocationStore.isRevoked(tokenId);
+    }
 
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    private void authenticate(HttpServletRequest request, String username) {
+        setAuthentication(request, userService.loadUserByUsername(username));
+    }
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+    // Stateless mode: the signed claims are trusted as-is, only the token version is checked.
+    private void authenticateFromClaims(HttpServletRequest request, Claims claims) {
+        Long userId = claims.get(JwtUtil.CLAIM_USER_ID, Long.class);
+        Integer tokenVersion = claims.get(JwtUtil.CLAIM_TOKEN_VERSION, Integer.class);
+        if (!Boolean.TRUE.equals(claims.get(JwtUtil.CLAIM_ENABLED, Boolean.class))
+                || !tokenVersionService.isCurrent(userId, tokenVersion == null ? 0 : tokenVersion)) {
+            return;
         }
 
-        filterChain.doFilter(request, response);
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(claims.getSubject());
+        user.setRole(Role.valueOf(claims.get(JwtUtil.CLAIM_ROLE, String.class)));
+        user.setEnabled(true);
+        user.setTokenVersion(tokenVersion == null ? 0 : tokenVersion);
+        setAuthentication(request, user);
+    }
+
+    private void setAuthentication(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        SecurityContextHolder.getContext().setAuthentication(authentication);
     }
 
     private String getJwtFromRequest(HttpServletRequest request) {
@@ -1,26 +1,35 @@
 package com.youssef.spring.security.config;
 
 
+import com.youssef.spring.security.entity.AuthProvider;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.service.AccountConflictException;
+import com.youssef.spring.security.service.FederatedUserService;
 import com.youssef.spring.security.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.util.Locale;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class OAuth2AuthenticationSuccessHandler  extends SimpleUrlAuthenticationSuccessHandler {
 
     private final JwtUtil jwtUtil;
+    private final FederatedUserService federatedUserService;
 
     @Value("${app.frontend.url}")
     private String frontendUrl;
@@ -31,12 +40,23 @@ public class OAuth2AuthenticationSuccessHandler  extends SimpleUrlAuthentication
 
         OAuth2User oAuth2User = (OAuth2User) authentication.getPrincipal();
         String email = oAuth2User.getAttribute("email");
-
-        String token = jwtUtil.generateToken(email);
-
-        String targetUrl = UriComponentsBuilder.fromUriString(frontendUrl + "/oauth2/redirect")
-                .queryParam("token", token)
-                .build().toUriString();
+        AuthProvider provider = AuthProvider.valueOf(((OAuth2AuthenticationToken) authentication)
+                .getAuthorizedClientRegistrationId().toUpperCase(Locale.ROOT));
+
+        // getName() is the provider's stable account id ("sub" for Google, "id" for GitHub).
+        UriComponentsBuilder target = UriComponentsBuilder.fromUriString(frontendUrl + "/oauth2/redirect");
+        try {
+            User user = federatedUserService.provision(provider, oAuth2User.getName(), email);
+            target.queryParam("token", jwtUtil.generateToken(user));
+        } catch (AccountConflictException e) {
+            log.info("{} sign-in refused for account {}: {}", provider, oAuth2User.getName(), e.getMessage());
+            target.queryParam("error", e.getCode());
+        } catch (RuntimeException e) {
+            // The cause may carry SQL or other internals: it stays in the log, the redirect gets a fixed code.
+            log.error("{} sign-in failed for account {}", provider, oAuth2User.getName(), e);
+            target.queryParam("error", "provisioning_failed");
+        }
+        String targetUrl = target.encode().build().toUriString();
 
         getRedirectStrategy().sendRedirect(request, response, targetUrl);
     }
@@ -0,0 +1,11 @@
+package com.youssef.spring.security.config;
+
+/**
+ * Thrown when the password hashing pool cannot take more work; mapped to 503 with Retry-After.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,56 @@
+package com.youssef.spring.security.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.youssef.spring.security.dto.ApiResponse;
+import com.youssef.spring.security.service.AuthRateLimiter;
+import com.youssef.spring.security.service.RateLimitExceededException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Per-client limit on the public endpoints that hash a password or send an email, applied before
+ * any of that work starts. The client is {@code getRemoteAddr()}: behind a proxy, set
+ * {@code server.forward-headers-strategy} so it is the real client and not the proxy.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Set<String> LIMITED_PATHS = Set.of(
+            "/api/auth/login", "/api/auth/register", "/api/auth/forgot-password");
+
+    private final AuthRateLimiter authRateLimiter;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !LIMITED_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            authRateLimiter.checkClient(request.getRemoteAddr());
+        } catch (RateLimitExceededException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), new ApiResponse(false, e.getMessage()));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
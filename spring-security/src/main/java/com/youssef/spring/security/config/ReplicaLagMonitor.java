@@ -0,0 +1,80 @@
+package com.youssef.spring.security.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Polls the replica every {@code app.datasource.replica.lag-check-ms} and tells the router whether
+ * it may serve reads. The lag comes from {@code lag-query} (one number, in seconds); without one,
+ * only reachability is checked. An unreachable replica, a failed query or a NULL lag count as
+ * unusable, so reads fall back to the primary rather than serve unknown staleness.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagMs;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagMs, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("db.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replica lag at the last check, NaN when unknown")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("db.replica.usable", this, monitor -> monitor.usable ? 1 : 0)
+                .description("1 while read-only transactions are sent to the replica")
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:1000}")
+    public void check() {
+        double lag = measure();
+        boolean nowUsable = !Double.isNaN(lag) && lag * 1000 <= maxLagMs;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                log.info("Replica caught up (lag {}s), read-only transactions go to it", lag);
+            } else {
+                log.warn("Replica lag {}s above {}ms or unknown, read-only transactions go to the primary", lag, maxLagMs);
+            }
+        }
+        lagSeconds = lag;
+        usable = nowUsable;
+    }
+
+    private double measure() {
+        try (Connection connection = replica.getConnection()) {
+            if (lagQuery == null || lagQuery.isBlank()) {
+                return connection.isValid(1) ? 0 : Double.NaN;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                if (!resultSet.next()) {
+                    return Double.NaN;
+                }
+                double lag = resultSet.getDouble(1);
+                return resultSet.wasNull() ? Double.NaN : Math.max(0, lag);
+            }
+        } catch (SQLException e) {
+            log.debug("Replica lag check failed", e);
+            return Double.NaN;
+        }
+    }
+}
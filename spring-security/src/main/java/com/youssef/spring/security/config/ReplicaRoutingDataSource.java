@@ -0,0 +1,60 @@
+package com.youssef.spring.security.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions while the replica keeps up, primary
+ * connections to everything else. Must sit behind a {@code LazyConnectionDataSourceProxy}: the
+ * transaction manager asks for its connection before the read-only flag is visible here, the
+ * proxy delays the real lookup to the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter writes;
+    private final Counter replicaReads;
+    private final Counter lagFallbacks;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                    MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.writes = routed("primary", "read-write", meterRegistry);
+        this.replicaReads = routed("replica", "read-only", meterRegistry);
+        this.lagFallbacks = routed("primary", "replica-lag", meterRegistry);
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    private static Counter routed(String target, String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("db.routing")
+                .description("Physical connections taken from each pool, and why")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            lagFallbacks.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+}
@@ -1,25 +1,35 @@
 package com.youssef.spring.security.config;
 
 import com.youssef.spring.security.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -30,11 +40,57 @@ public class SecurityConfig {
 
     private final UserService userService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final OAuth2AuthenticationSuccessHandler oAuth2AuthenticationSuccessHandler;
+    private final CookieOAuth2AuthorizationRequestRepository cookieAuthorizationRequestRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.metrics.scrape.username:prometheus}")
+    private String scrapeUsername;
+
+    @Value("${app.metrics.scrape.password:}")
+    private String scrapePassword;
+
+    @Value("${app.security.password.hashing-threads:0}")
+    private int hashingThreads;
+
+    @Value("${app.security.password.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    @Value("${app.security.password.timeout-ms:5000}")
+    private long hashingTimeoutMs;
+
+    @Value("${app.security.password.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.security.password.calibrate:false}")
+    private boolean calibrateBcrypt;
+
+    @Value("${app.security.password.target-hash-ms:250}")
+    private long targetHashMs;
+
+    @Value("${app.security.password.min-strength:10}")
+    private int minBcryptStrength;
+
+    @Value("${app.security.password.max-strength:16}")
+    private int maxBcryptStrength;
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Calibrating costs startup time and can pick another strength on each machine: opt-in only.
+        int strength = calibrateBcrypt
+                ? BCryptStrengthCalibrator.calibrate(targetHashMs, minBcryptStrength, maxBcryptStrength)
+                : bcryptStrength;
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+        // New hashes are stored as {bcrypt}...; hashes from before the prefix existed are still
+        // checked as BCrypt and flagged for upgrade, like hashes at a lower strength.
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        return new OffloadingPasswordEncoder(delegating, threads, hashingQueueCapacity,
+                hashingTimeoutMs, meterRegistry);
     }
 
     @Bean
@@ -42,6 +98,8 @@ public class SecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes outdated passwords transparently after a successful login.
+        authProvider.setUserDetailsPasswordService(userService);
         return authProvider;
     }
 
@@ -84,6 +142,36 @@ public class SecurityConfig {
 
     */
 
+    /**
+     * Metrics are for the scraper only: HTTP Basic with the {@code app.metrics.scrape} credentials,
+     * checked before the API chain, so neither anonymous clients nor API users' JWTs can read them.
+     * Without a password nobody can.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain metricsFilterChain(HttpSecurity http) throws Exception {
+        InMemoryUserDetailsManager scrapers = new InMemoryUserDetailsManager();
+        if (!scrapePassword.isBlank()) {
+            scrapers.createUser(org.springframework.security.core.userdetails.User.withUsername(scrapeUsername)
+                    .password(passwordEncoder().encode(scrapePassword))
+                    .roles("METRICS")
+                    .build());
+        }
+        DaoAuthenticationProvider scrapeProvider = new DaoAuthenticationProvider();
+        scrapeProvider.setUserDetailsService(scrapers);
+        scrapeProvider.setPasswordEncoder(passwordEncoder());
+
+        http
+                .securityMatcher(new OrRequestMatcher(new AntPathRequestMatcher("/actuator/prometheus"),
+                        new AntPathRequestMatcher("/actuator/metrics/**")))
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(authz -> authz.anyRequest().hasRole("METRICS"))
+                .authenticationManager(new ProviderManager(scrapeProvider))
+                .httpBasic(Customizer.withDefaults());
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -95,6 +183,10 @@ public class SecurityConfig {
                         .requestMatchers(new AntPathRequestMatcher("/api/auth/**")).permitAll()
                         .requestMatchers(new AntPathRequestMatcher("/api/public/**")).permitAll()
                         .requestMatchers(new AntPathRequestMatcher("/h2-console/**")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/health/**")).permitAll()
+                        // Error pages, so a 401 from the metrics chain is not turned into a login redirect
+                        .requestMatchers(new AntPathRequestMatcher("/error")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/.well-known/jwks.json")).permitAll()
 
                         // Admin only
                         .requestMatchers(new AntPathRequestMatcher("/admin/**")).hasRole("ADMIN")
@@ -102,8 +194,14 @@ public class SecurityConfig {
                         // All others
                         .anyRequest().authenticated()
                 )
-                .oauth2Login(oauth2 -> oauth2.successHandler(oAuth2AuthenticationSuccessHandler))
+                // The pending authorization request travels in a cookie: any node can take the callback.
+                .oauth2Login(oauth2 -> oauth2
+                        .authorizationEndpoint(endpoint -> endpoint
+                                .authorizationRequestRepository(cookieAuthorizationRequestRepository))
+                        .successHandler(oAuth2AuthenticationSuccessHandler)
+                        .failureHandler(oAuth2FailureHandler()))
                 .authenticationProvider(authenticationProvider())
+                .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         // H2 Console fix
@@ -127,6 +225,13 @@ public class SecurityConfig {
 
 
 
+    // The default handler keeps the exception in a new HttpSession for the login page.
+    private static SimpleUrlAuthenticationFailureHandler oAuth2FailureHandler() {
+        SimpleUrlAuthenticationFailureHandler failureHandler = new SimpleUrlAuthenticationFailureHandler("/login?error");
+        failureHandler.setAllowSessionCreation(false);
+        return failureHandler;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,47 @@
+package com.youssef.spring.security.config;
+
+import com.youssef.spring.security.controller.AuthController;
+import com.youssef.spring.security.service.AuthService;
+import com.youssef.spring.security.service.UserService;
+import com.youssef.spring.security.util.JwtKeyRing;
+import com.youssef.spring.security.util.JwtUtil;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+import java.util.List;
+
+/**
+ * With {@code spring.main.lazy-initialization=true}, beans are only created on first use: mail,
+ * OAuth2, metrics wiring and the like stay out of startup. Two kinds of beans stay eager anyway:
+ * the login path, so the first login does not pay for building it, and beans with
+ * {@code @Scheduled} methods, which would otherwise never be scheduled.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final List<Class<?>> LOGIN_PATH = List.of(
+            SecurityFilterChain.class, AuthenticationManager.class, PasswordEncoder.class,
+            AuthController.class, AuthService.class, UserService.class, JwtUtil.class, JwtKeyRing.class);
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return (beanName, beanDefinition, beanType) -> isOnLoginPath(beanType) || hasScheduledMethods(beanType);
+    }
+
+    private static boolean isOnLoginPath(Class<?> beanType) {
+        return LOGIN_PATH.stream().anyMatch(type -> type.isAssignableFrom(beanType));
+    }
+
+    private static boolean hasScheduledMethods(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                        AnnotatedElementUtils.hasAnnotation(method, Scheduled.class) ? Boolean.TRUE : null).isEmpty();
+    }
+}
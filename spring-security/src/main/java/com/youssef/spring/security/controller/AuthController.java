@@ -24,6 +24,12 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse> logout(@RequestHeader("Authorization") String authorization) {
+        authService.logout(authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization);
+        return ResponseEntity.ok(new ApiResponse(true, "Logged out successfully!"));
+    }
+
     @PostMapping("/register")
     public ResponseEntity<ApiResponse> register(@Valid @RequestBody RegisterRequest request) {
         authService.register(request);
@@ -0,0 +1,34 @@
+package com.youssef.spring.security.controller;
+
+import com.youssef.spring.security.util.JwtKeyRing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public keys for verifying our JWTs. Clients may cache the set for {@code jwks-max-age-seconds};
+ * keep it below {@code app.jwt.keys.rotation-ms} so they see the next key before it is used.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+
+    private final JwtKeyRing keyRing;
+
+    @Value("${app.jwt.keys.jwks-max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .body(keyRing.getJwks());
+    }
+}
@@ -0,0 +1,28 @@
+package com.youssef.spring.security.controller;
+
+import com.youssef.spring.security.config.PasswordHashingOverloadedException;
+import com.youssef.spring.security.dto.ApiResponse;
+import com.youssef.spring.security.service.RateLimitExceededException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    @ExceptionHandler(PasswordHashingOverloadedException.class)
+    public ResponseEntity<ApiResponse> handlePasswordHashingOverloaded(PasswordHashingOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiResponse(false, e.getMessage()));
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ApiResponse> handleRateLimitExceeded(RateLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ApiResponse(false, e.getMessage()));
+    }
+}
@@ -7,7 +7,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "email_verification_tokens")
+@Table(name = "email_verification_tokens", indexes = {
+        @Index(name = "idx_email_verification_tokens_expiry_date", columnList = "expiryDate")
+})
 @Data
 @NoArgsConstructor
 public class EmailVerificationToken {
@@ -0,0 +1,5 @@
+package com.youssef.spring.security.entity;
+
+public enum OutboxStatus {
+    PENDING,FAILED
+}
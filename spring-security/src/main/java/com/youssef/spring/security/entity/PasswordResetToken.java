@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "password_reset_tokens")
+@Table(name = "password_reset_tokens", indexes = {
+        @Index(name = "idx_password_reset_tokens_expiry_date", columnList = "expiryDate"),
+        @Index(name = "idx_password_reset_tokens_user_id", columnList = "user_id")
+})
 @Data
 @NoArgsConstructor
 
@@ -16,25 +16,35 @@ import java.util.List;
 
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+        // Also the index federated logins are resolved through (FederatedUserService).
+        @UniqueConstraint(name = User.UK_PROVIDER, columnNames = {"authProvider", "providerId"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User implements UserDetails {
 
+    public static final String UK_USERNAME = "uk_users_username";
+    public static final String UK_EMAIL = "uk_users_email";
+    public static final String UK_PROVIDER = "uk_users_provider";
+
+
+    // A sequence (unlike IDENTITY) lets Hibernate assign ids up front and batch the inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
 
     @NotBlank
-    @Column(unique = true)
     private String username;
 
 
     @Email
     @NotBlank
-    @Column(unique = true)
     private String email;
 
 
@@ -62,6 +72,26 @@ public class User implements UserDetails {
     private LocalDateTime lastLogin;
 
 
+    // Bumped to revoke every JWT issued to this user before the change.
+    private int tokenVersion = 0;
+
+
+    // Consecutive failed logins; reset on success and when the account gets locked.
+    private int failedLoginAttempts = 0;
+
+
+    private LocalDateTime lockedUntil;
+
+
+    /**
+     * A detached copy with the same column values (the caches hand out copies, see CacheConfig).
+     */
+    public User copy() {
+        return new User(id, username, email, password, role, authProvider, providerId, enabled, createdAt,
+                lastLogin, tokenVersion, failedLoginAttempts, lockedUntil);
+    }
+
+
     // UserDetails implementation
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -77,7 +107,7 @@ public class User implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return true;
+        return lockedUntil == null || !lockedUntil.isAfter(LocalDateTime.now());
     }
     @Override
     public boolean isCredentialsNonExpired() {
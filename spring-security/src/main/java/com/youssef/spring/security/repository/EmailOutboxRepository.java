@@ -0,0 +1,17 @@
+package com.youssef.spring.security.repository;
+
+import com.youssef.spring.security.entity.EmailOutboxMessage;
+import com.youssef.spring.security.entity.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    List<EmailOutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+            OutboxStatus status, LocalDateTime now, Pageable pageable);
+
+}
@@ -1,15 +1,34 @@
 package com.youssef.spring.security.repository;
 
 import com.youssef.spring.security.entity.EmailVerificationToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface EmailVerificationTokenRepository extends JpaRepository<EmailVerificationToken, Long> {
 
 
+    // Loads the user in the same select: every caller goes on to update it.
+    @Transactional(readOnly = true)
+    @EntityGraph(attributePaths = "user")
     Optional<EmailVerificationToken> findByToken(String token);
-    void deleteByUserId(Long userId);
+
+    // One DELETE statement instead of loading and removing each token.
+    @Transactional
+    @Modifying
+    @Query("delete from EmailVerificationToken t where t.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Query("select t.id from EmailVerificationToken t where t.expiryDate < :now order by t.id")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
 
 }
@@ -1,18 +1,79 @@
 package com.youssef.spring.security.repository;
 
 import com.youssef.spring.security.entity.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    // Cache misses refill from the primary, never from a read replica (ReadReplicaConfig): a lagging
+    // row would stay cached for the whole expiry and undo a lockout, reset or verification.
+    @Transactional
+    @Cacheable("usersByUsername")
     Optional<User> findByUsername(String username);
+
+    @Transactional
+    @Cacheable("usersByEmail")
     Optional<User> findByEmail(String email);
+
+    @Transactional
+    @Cacheable("usernameExists")
     Boolean existsByUsername(String username);
+
+    @Transactional
+    @Cacheable("emailExists")
     Boolean existsByEmail(String email);
 
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {"usersByUsername", "usernameExists"}, key = "#p0.username",
+                    condition = "#p0.username != null"),
+            @CacheEvict(cacheNames = {"usersByEmail", "emailExists"}, key = "#p0.email",
+                    condition = "#p0.email != null")
+    })
+    <S extends User> S save(S user);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {"usersByUsername", "usernameExists"}, key = "#p0.username",
+                    condition = "#p0.username != null"),
+            @CacheEvict(cacheNames = {"usersByEmail", "emailExists"}, key = "#p0.email",
+                    condition = "#p0.email != null")
+    })
+    <S extends User> S saveAndFlush(S user);
+
+    @Query("select u.id, u.tokenVersion from User u where u.tokenVersion > 0")
+    List<Object[]> findBumpedTokenVersions();
+
+    // One atomic statement, so concurrent failures are all counted. lockedUntil is assigned first
+    // because MySQL evaluates SET clauses left to right.
+    @Transactional
+    @Modifying
+    @CacheEvict(cacheNames = "usersByUsername", key = "#p0")
+    @Query("update User u set "
+            + "u.lockedUntil = case when u.failedLoginAttempts + 1 >= :maxAttempts then :lockUntil else u.lockedUntil end, "
+            + "u.failedLoginAttempts = case when u.failedLoginAttempts + 1 >= :maxAttempts then 0 else u.failedLoginAttempts + 1 end "
+            + "where u.username = :username")
+    int recordLoginFailure(@Param("username") String username, @Param("maxAttempts") int maxAttempts,
+                           @Param("lockUntil") LocalDateTime lockUntil);
+
+    @Transactional
+    @Modifying
+    @CacheEvict(cacheNames = "usersByUsername", key = "#p0")
+    @Query("update User u set u.failedLoginAttempts = 0 where u.username = :username")
+    int resetLoginFailures(@Param("username") String username);
+
 
 
 
@@ -0,0 +1,22 @@
+package com.youssef.spring.security.service;
+
+/**
+ * Thrown when a federated sign-in would need an email or username another account holds.
+ * {@link #getCode()} is a fixed code, safe to hand back to the client.
+ */
+public class AccountConflictException extends RuntimeException {
+
+    public static final String EMAIL_TAKEN = "email_taken";
+    public static final String USERNAME_TAKEN = "username_taken";
+
+    private final String code;
+
+    public AccountConflictException(String message, String code) {
+        super(message);
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
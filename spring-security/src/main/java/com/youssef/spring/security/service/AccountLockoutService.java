@@ -0,0 +1,61 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Locks an account for {@code app.security.lockout.duration-ms} after {@code max-attempts}
+ * consecutive wrong passwords. The lock is read through {@link User#isAccountNonLocked()}, which
+ * {@code DaoAuthenticationProvider} checks before it runs BCrypt.
+ */
+@Service
+public class AccountLockoutService {
+
+    private final UserRepository userRepository;
+    private final int maxAttempts;
+    private final Duration lockDuration;
+    private final Counter rejected;
+
+    public AccountLockoutService(UserRepository userRepository,
+                                 @Value("${app.security.lockout.max-attempts:5}") int maxAttempts,
+                                 @Value("${app.security.lockout.duration-ms:900000}") long lockDurationMs,
+                                 MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.maxAttempts = maxAttempts;
+        this.lockDuration = Duration.ofMillis(lockDurationMs);
+        this.rejected = Counter.builder("auth.rate_limit.rejected")
+                .description("Requests refused by a rate limiter")
+                .tag("limiter", "lockout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Unknown usernames match no row, so they cost the same single statement.
+     */
+    public void loginFailed(String username) {
+        userRepository.recordLoginFailure(username, maxAttempts, LocalDateTime.now().plus(lockDuration));
+    }
+
+    public void loginSucceeded(User user) {
+        if (user.getFailedLoginAttempts() > 0) {
+            userRepository.resetLoginFailures(user.getUsername());
+        }
+    }
+
+    public RateLimitExceededException lockedError(String username) {
+        rejected.increment();
+        long retryAfterSeconds = userRepository.findByUsername(username)
+                .map(User::getLockedUntil)
+                .map(until -> Duration.between(LocalDateTime.now(), until).toSeconds() + 1)
+                .orElse(lockDuration.toSeconds());
+        return new RateLimitExceededException("Account is temporarily locked, please try again later",
+                Math.max(1, retryAfterSeconds));
+    }
+}
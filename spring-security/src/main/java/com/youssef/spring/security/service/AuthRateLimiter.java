@@ -0,0 +1,61 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the public auth endpoints, which each cost a BCrypt hash or an email: per client address
+ * (checked by {@code RateLimitFilter}) and per username or email address (checked by {@link AuthService}),
+ * so a burst spread over many addresses still cannot hammer one account or mailbox.
+ */
+@Service
+public class AuthRateLimiter {
+
+    private final boolean enabled;
+    private final RateLimiter byClient;
+    private final RateLimiter byAccount;
+
+    public AuthRateLimiter(@Value("${app.security.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.security.rate-limit.client.capacity:30}") int clientCapacity,
+                           @Value("${app.security.rate-limit.client.refill-ms:1000}") long clientRefillMs,
+                           @Value("${app.security.rate-limit.account.capacity:10}") int accountCapacity,
+                           @Value("${app.security.rate-limit.account.refill-ms:6000}") long accountRefillMs,
+                           @Value("${app.security.rate-limit.max-keys:100000}") long maxKeys,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.byClient = new RateLimiter("client", clientCapacity, Duration.ofMillis(clientRefillMs),
+                maxKeys, meterRegistry);
+        this.byAccount = new RateLimiter("account", accountCapacity, Duration.ofMillis(accountRefillMs),
+                maxKeys, meterRegistry);
+    }
+
+    public void checkClient(String address) {
+        check(byClient, address, "Too many requests, please try again later");
+    }
+
+    /**
+     * @param scope what the account is used for ("login", "mail"), so each has its own bucket
+     */
+    public void checkAccount(String scope, String account) {
+        if (account != null) {
+            check(byAccount, scope + ":" + account.toLowerCase(Locale.ROOT),
+                    "Too many attempts for this account, please try again later");
+        }
+    }
+
+    private void check(RateLimiter limiter, String key, String message) {
+        if (!enabled) {
+            return;
+        }
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            throw new RateLimitExceededException(message, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1));
+        }
+    }
+}
@@ -9,10 +9,19 @@ import com.youssef.spring.security.entity.User;
 import com.youssef.spring.security.repository.EmailVerificationTokenRepository;
 import com.youssef.spring.security.repository.PasswordResetTokenRepository;
 import com.youssef.spring.security.util.JwtUtil;
+import com.youssef.spring.security.util.JwtVerification;
+import com.youssef.spring.security.util.SignedLinkTokens;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import jakarta.validation.constraints.Email;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.neo4j.Neo4jProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -20,7 +29,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.security.authentication.AuthenticationManager;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
@@ -34,51 +45,123 @@ public class AuthService {
     private final EmailService emailService;
     private final EmailVerificationTokenRepository emailVerificationTokenRepository;
     private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final TokenVersionService tokenVersionService;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final SignedLinkTokens signedLinkTokens;
+    private final TokenRevocationStore tokenRevocationStore;
+    private final AuthRateLimiter authRateLimiter;
+    private final AccountLockoutService accountLockoutService;
+    private final MeterRegistry meterRegistry;
+
+    private Timer loginSucceeded;
+    private Timer loginFailed;
+
+    // "database": UUID rows in the token tables; "signed": stateless HMAC tokens (SignedLinkTokens)
+    @Value("${app.links.token-format:database}")
+    private String linkTokenFormat;
+
+    @PostConstruct
+    void registerMeters() {
+        loginSucceeded = loginTimer("success");
+        loginFailed = loginTimer("failure");
+    }
+
+    private Timer loginTimer(String outcome) {
+        return Timer.builder("auth.login")
+                .description("Whole login: user lookup, password check, JWT signing")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     public AuthResponse login(AuthRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
+        authRateLimiter.checkAccount("login", request.getUsername());
+        long start = System.nanoTime();
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
+            );
+        } catch (LockedException e) {
+            loginFailed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw accountLockoutService.lockedError(request.getUsername());
+        } catch (BadCredentialsException e) {
+            accountLockoutService.loginFailed(request.getUsername());
+            loginFailed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } catch (RuntimeException e) {
+            loginFailed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
         User user = (User) authentication.getPrincipal();
-        user.setLastLogin(LocalDateTime.now());
-        userService.save(user);
-        String token = jwtUtil.generateToken(user.getUsername());
+        accountLockoutService.loginSucceeded(user);
+        LocalDateTime loginTime = LocalDateTime.now();
+        user.setLastLogin(loginTime);
+        lastLoginRecorder.record(user.getId(), loginTime);
+        String token = jwtUtil.generateToken(user);
+        loginSucceeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
 
         return new AuthResponse(token, user.getUsername(), user.getEmail(), user.getRole().name());
     }
 
 
+    /**
+     * Revokes the given token until it expires. Other tokens of the same user stay valid.
+     */
+    public void logout(String token) {
+        JwtVerification verification = jwtUtil.verifyToken(token);
+        if (!verification.isValid()) {
+            throw new RuntimeException("Invalid token");
+        }
+        if (verification.getClaims().getId() == null) {
+            throw new RuntimeException("Token cannot be revoked, it has no id");
+        }
+        tokenRevocationStore.revoke(verification.getClaims().getId(), verification.getExpiration().toInstant());
+    }
+
+
     @Transactional
     public void register(RegisterRequest request) {
-
-        if (userService.existsByUsername(request.getUsername())) {
+        authRateLimiter.checkAccount("mail", request.getEmail());
+        if (FederatedUserService.isReservedUsername(request.getUsername())) {
             throw new RuntimeException("Username is already taken!");
         }
 
-        if (userService.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email is already in use!");
-        }
-
         User user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setEnabled(false);
-        User savedUser = userService.save(user);
+// No exists checks: the unique constraints reject duplicates, even between concurrent requests
+        User savedUser;
+        try {
+            savedUser = userService.create(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateUserError(e);
+        }
 
 // Generate email verification token
-        String token = UUID.randomUUID().toString();
-        EmailVerificationToken verificationToken = new EmailVerificationToken(token, savedUser);
-        emailVerificationTokenRepository.save(verificationToken);
+        String token;
+        if (signedLinks()) {
+            token = signedLinkTokens.issue(SignedLinkTokens.Purpose.EMAIL_VERIFICATION, savedUser);
+        } else {
+            token = UUID.randomUUID().toString();
+            EmailVerificationToken verificationToken = new EmailVerificationToken(token, savedUser);
+            emailVerificationTokenRepository.save(verificationToken);
+        }
 
-// Send verification email
+// Queue verification email, delivered after commit by EmailOutboxDrainer
         emailService.sendEmailVerification(savedUser.getEmail(), token);
     }
 
 
     @Transactional
     public void verifyEmail(String token) {
+        if (SignedLinkTokens.isSigned(token)) {
+            verifyEmailWithSignedToken(token);
+            return;
+        }
         EmailVerificationToken verificationToken = emailVerificationTokenRepository.findByToken(token)
                 .orElseThrow(() -> new RuntimeException("Invalid verification token"));
         if (verificationToken.getExpiryDate().isBefore(LocalDateTime.now())) {
@@ -93,14 +176,19 @@ public class AuthService {
 
     @Transactional
     public void forgotPassword(String email) {
+        authRateLimiter.checkAccount("mail", email);
         User user = userService.findByEmail(email);
+        if (signedLinks()) {
+            emailService.sendPasswordReset(email, signedLinkTokens.issue(SignedLinkTokens.Purpose.PASSWORD_RESET, user));
+            return;
+        }
 // Delete any existing password reset tokens for this user
         passwordResetTokenRepository.deleteByUserId(user.getId());
 // Generate new token
         String token = UUID.randomUUID().toString();
         PasswordResetToken resetToken = new PasswordResetToken(token, user);
         passwordResetTokenRepository.save(resetToken);
-// Send reset email
+// Queue reset email, delivered after commit by EmailOutboxDrainer
         emailService.sendPasswordReset(email, token);
     }
 
@@ -108,6 +196,10 @@ public class AuthService {
 
     @Transactional
     public void resetPassword(String token, String newPassword) {
+        if (SignedLinkTokens.isSigned(token)) {
+            resetPasswordWithSignedToken(token, newPassword);
+            return;
+        }
         PasswordResetToken resetToken = passwordResetTokenRepository.findByToken(token)
                 .orElseThrow(() -> new RuntimeException("Invalid reset token"));
         if (resetToken.getExpiryDate().isBefore(LocalDateTime.now())) {
@@ -118,6 +210,7 @@ public class AuthService {
         }
         User user = resetToken.getUser();
         user.setPassword(passwordEncoder.encode(newPassword));
+        tokenVersionService.revokeTokens(user);
         userService.save(user);
         resetToken.setUsed(true);
         passwordResetTokenRepository.save(resetToken);
@@ -127,6 +220,63 @@ public class AuthService {
 
 
 
+    // Links already sent keep working after a format switch: the token itself tells which kind it is.
+    private boolean signedLinks() {
+        return "signed".equals(linkTokenFormat);
+    }
+
+
+    private void verifyEmailWithSignedToken(String token) {
+        SignedLinkTokens.Verification verification =
+                signedLinkTokens.verify(token, SignedLinkTokens.Purpose.EMAIL_VERIFICATION);
+        if (verification.getFailure() == SignedLinkTokens.Failure.EXPIRED) {
+            throw new RuntimeException("Verification token has expired");
+        }
+        if (!verification.isValid()) {
+            throw new RuntimeException("Invalid verification token");
+        }
+        User user = userService.findById(verification.getUserId());
+        if (!signedLinkTokens.matches(verification, user) || !signedLinkTokens.markUsed(verification)) {
+            throw new RuntimeException("Invalid verification token");
+        }
+        user.setEnabled(true);
+        userService.save(user);
+    }
+
+
+    private void resetPasswordWithSignedToken(String token, String newPassword) {
+        SignedLinkTokens.Verification verification =
+                signedLinkTokens.verify(token, SignedLinkTokens.Purpose.PASSWORD_RESET);
+        if (verification.getFailure() == SignedLinkTokens.Failure.EXPIRED) {
+            throw new RuntimeException("Reset token has expired");
+        }
+        if (!verification.isValid()) {
+            throw new RuntimeException("Invalid reset token");
+        }
+        User user = userService.findById(verification.getUserId());
+// The fingerprint covers the password hash, so the token dies with the password it was issued for
+        if (!signedLinkTokens.matches(verification, user) || !signedLinkTokens.markUsed(verification)) {
+            throw new RuntimeException("Reset token has already been used");
+        }
+        user.setPassword(passwordEncoder.encode(newPassword));
+        tokenVersionService.revokeTokens(user);
+        userService.save(user);
+    }
+
+
+    private static RuntimeException duplicateUserError(DataIntegrityViolationException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        if (message.contains(User.UK_USERNAME)) {
+            return new RuntimeException("Username is already taken!");
+        }
+        if (message.contains(User.UK_EMAIL)) {
+            return new RuntimeException("Email is already in use!");
+        }
+        return e;
+    }
+
+
+
 
 
 
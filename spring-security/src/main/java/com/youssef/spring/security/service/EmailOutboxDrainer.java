@@ -0,0 +1,162 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.EmailOutboxMessage;
+import com.youssef.spring.security.entity.OutboxStatus;
+import com.youssef.spring.security.repository.EmailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Delivers pending {@link EmailOutboxMessage}s outside of any request or transaction.
+ * <p>
+ * Several instances may drain the same table. Each due row is claimed before it is sent, by
+ * moving its {@code next_attempt_at} one {@code lease-ms} ahead only if it is still due, so
+ * exactly one drainer gets it; a drainer that dies mid-send leaves the row to be picked up again
+ * once the lease expires.
+ * <p>
+ * Delivery is at-least-once: a row is only deleted after the mail server accepted the message,
+ * so a crash between the two sends it again. Failed rows are retried with exponential backoff
+ * and parked as {@link OutboxStatus#FAILED} after {@code max-attempts}. A page waits at most
+ * {@code send-timeout-ms} for the mail server as a whole, not per message.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmailOutboxDrainer {
+
+    static final String CLAIM_SQL = "UPDATE email_outbox SET next_attempt_at = ? "
+            + "WHERE id = ? AND status = 'PENDING' AND next_attempt_at <= ?";
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+
+    @Value("${app.mail.outbox.send-timeout-ms:60000}")
+    private long sendTimeoutMs;
+
+    // Longer than send-timeout-ms, so a row is never claimed again while its send may still succeed.
+    @Value("${app.mail.outbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutboxMessage> due = claim(emailOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                OutboxStatus.PENDING, now, PageRequest.of(0, batchSize)), now);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Submit everything first so the dispatcher can put the whole page in one SMTP batch.
+        List<CompletableFuture<Void>> results = new ArrayList<>(due.size());
+        for (EmailOutboxMessage message : due) {
+            results.add(submit(message));
+        }
+        try {
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                    .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // Sorted out per message below.
+        } catch (InterruptedException e) {
+            // The lease brings the claimed rows back once it expires.
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        List<EmailOutboxMessage> sent = new ArrayList<>();
+        List<EmailOutboxMessage> failed = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            EmailOutboxMessage message = due.get(i);
+            CompletableFuture<Void> result = results.get(i);
+            if (result.isDone() && !result.isCompletedExceptionally()) {
+                sent.add(message);
+                continue;
+            }
+            Throwable cause = result.isDone() ? failure(result)
+                    : new TimeoutException("No answer from the mail server within " + sendTimeoutMs + " ms");
+            scheduleRetry(message, cause);
+            failed.add(message);
+        }
+
+        emailOutboxRepository.deleteAllInBatch(sent);
+        emailOutboxRepository.saveAll(failed);
+    }
+
+    /**
+     * Keeps the rows this drainer won: another drainer that read the same page sees them
+     * leased and claims none of them.
+     */
+    private List<EmailOutboxMessage> claim(List<EmailOutboxMessage> candidates, LocalDateTime now) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        Timestamp leaseUntil = Timestamp.valueOf(now.plusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs)));
+        Timestamp dueBy = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(candidates.size());
+        for (EmailOutboxMessage message : candidates) {
+            rows.add(new Object[]{leaseUntil, message.getId(), dueBy});
+        }
+        int[] claimed = jdbcTemplate.batchUpdate(CLAIM_SQL, rows);
+        List<EmailOutboxMessage> won = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (claimed[i] > 0) {
+                won.add(candidates.get(i));
+            }
+        }
+        return won;
+    }
+
+    private static Throwable failure(CompletableFuture<Void> result) {
+        Throwable failure = result.handle((ignored, e) -> e).join();
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private CompletableFuture<Void> submit(EmailOutboxMessage message) {
+        try {
+            return emailService.deliver(message);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void scheduleRetry(EmailOutboxMessage message, Throwable cause) {
+        message.setAttempts(message.getAttempts() + 1);
+        message.setLastError(abbreviate(String.valueOf(cause.getMessage())));
+        if (message.getAttempts() >= maxAttempts) {
+            message.setStatus(OutboxStatus.FAILED);
+            log.warn("Giving up on email {} to {} after {} attempts", message.getId(),
+                    message.getRecipient(), message.getAttempts());
+            return;
+        }
+        long backoffMs = initialBackoffMs << Math.min(message.getAttempts() - 1, 20);
+        message.setNextAttemptAt(LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs)));
+    }
+
+    private static String abbreviate(String error) {
+        return error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+}
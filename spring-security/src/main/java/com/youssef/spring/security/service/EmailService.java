@@ -1,43 +1,88 @@
 package com.youssef.spring.security.service;
 
-import lombok.RequiredArgsConstructor;
+import com.youssef.spring.security.entity.EmailOutboxMessage;
+import com.youssef.spring.security.repository.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Service
-@RequiredArgsConstructor
 public class EmailService {
 
     private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final Timer sentTimer;
+    private final Timer failedTimer;
 
+    public EmailService(JavaMailSender mailSender, MailDispatcher mailDispatcher,
+                        EmailOutboxRepository emailOutboxRepository, MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.mailDispatcher = mailDispatcher;
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.sentTimer = sendTimer("sent", meterRegistry);
+        this.failedTimer = sendTimer("failed", meterRegistry);
+    }
+
+    private static Timer sendTimer(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.mail.send")
+                .description("Time from handing a message to the dispatcher until the SMTP server answered")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
 
 
+    // Both methods only write to the outbox: they join the caller's transaction and never touch SMTP.
     public void sendEmailVerification(String email, String token) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("Email Verification");
-        message.setText("Please click the following link to verify your email: " +
+        enqueue(email, "Email Verification", "Please click the following link to verify your email: " +
                 frontendUrl + "/verify-email?token=" + token);
-        mailSender.send(message);
     }
 
 
 
     public void sendPasswordReset(String email, String token) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("Password Reset");
-        message.setText("Please click the following link to reset your password: " +
+        enqueue(email, "Password Reset", "Please click the following link to reset your password: " +
                 frontendUrl + "/reset-password?token=" + token);
-        mailSender.send(message);
+    }
+
+
+    /**
+     * Hands an outbox message to the mail dispatcher; the future completes once the server accepted it.
+     */
+    public CompletableFuture<Void> deliver(EmailOutboxMessage outboxMessage) {
+        MimeMessage message = mailSender.createMimeMessage();
+        try {
+            MimeMessageHelper helper = new MimeMessageHelper(message);
+            helper.setTo(outboxMessage.getRecipient());
+            helper.setSubject(outboxMessage.getSubject());
+            helper.setText(outboxMessage.getBody());
+        } catch (MessagingException e) {
+            throw new MailPreparationException(e);
+        }
+        long start = System.nanoTime();
+        return mailDispatcher.submit(message).whenComplete((ignored, failure) ->
+                (failure == null ? sentTimer : failedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+
+    private void enqueue(String to, String subject, String text) {
+        emailOutboxRepository.save(new EmailOutboxMessage(to, subject, text));
     }
 
 
 
-}
\ No newline at end of file
+}
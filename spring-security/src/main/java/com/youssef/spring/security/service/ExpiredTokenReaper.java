@@ -0,0 +1,86 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.repository.EmailVerificationTokenRepository;
+import com.youssef.spring.security.repository.PasswordResetTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Deletes expired verification tokens and expired or used reset tokens. Each chunk of at most
+ * {@code chunk-size} ids is removed with one bulk {@code DELETE ... WHERE id IN (...)} in its own
+ * short transaction, so a large backlog never holds locks for long.
+ */
+@Slf4j
+@Service
+public class ExpiredTokenReaper {
+
+    private final EmailVerificationTokenRepository emailVerificationTokenRepository;
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final Counter verificationTokensPurged;
+    private final Counter resetTokensPurged;
+    private final Timer runTimer;
+
+    @Value("${app.tokens.reaper.chunk-size:500}")
+    private int chunkSize;
+
+    public ExpiredTokenReaper(EmailVerificationTokenRepository emailVerificationTokenRepository,
+                              PasswordResetTokenRepository passwordResetTokenRepository,
+                              MeterRegistry meterRegistry) {
+        this.emailVerificationTokenRepository = emailVerificationTokenRepository;
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.verificationTokensPurged = Counter.builder("auth.tokens.purged")
+                .description("Expired tokens deleted by the reaper")
+                .tag("type", "email_verification")
+                .register(meterRegistry);
+        this.resetTokensPurged = Counter.builder("auth.tokens.purged")
+                .description("Expired tokens deleted by the reaper")
+                .tag("type", "password_reset")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("auth.tokens.reaper.duration")
+                .description("Time per reaper run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tokens.reaper.interval-ms:3600000}",
+            initialDelayString = "${app.tokens.reaper.interval-ms:3600000}")
+    public void reap() {
+        runTimer.record(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            long verification = purge(pageable -> emailVerificationTokenRepository.findExpiredIds(now, pageable),
+                    emailVerificationTokenRepository::deleteAllByIdInBatch);
+            long reset = purge(pageable -> passwordResetTokenRepository.findExpiredOrUsedIds(now, pageable),
+                    passwordResetTokenRepository::deleteAllByIdInBatch);
+            verificationTokensPurged.increment(verification);
+            resetTokensPurged.increment(reset);
+            if (verification + reset > 0) {
+                log.info("Purged {} verification and {} password reset token(s)", verification, reset);
+            }
+        });
+    }
+
+    private long purge(Function<Pageable, List<Long>> findIds, Consumer<List<Long>> deleteIds) {
+        long purged = 0;
+        List<Long> ids;
+        do {
+            // Always page 0: the previous chunk is gone by the time the next one is read.
+            ids = findIds.apply(PageRequest.of(0, chunkSize));
+            if (!ids.isEmpty()) {
+                deleteIds.accept(ids);
+                purged += ids.size();
+            }
+        } while (ids.size() == chunkSize);
+        return purged;
+    }
+}
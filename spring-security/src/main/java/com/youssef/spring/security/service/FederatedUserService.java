@@ -0,0 +1,172 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.AuthProvider;
+import com.youssef.spring.security.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Users who sign in with Google or GitHub. Each login reads the account's id and email through
+ * the {@code (auth_provider, provider_id)} index and, only when the account is new or the
+ * provider reports another email, runs one {@code MERGE} on the same key: it inserts the user the
+ * first time and otherwise refreshes the email. The email read first tells which cache keys the
+ * change makes stale, and the id it returns loads the user, so a returning login costs two
+ * statements. The user is never looked up by username or email, which a local account could
+ * have claimed first. Every read runs on the primary: a replica may not have the account yet.
+ */
+@Service
+@RequiredArgsConstructor
+public class FederatedUserService {
+
+    // Federated users never log in with a password; "!" matches no hash.
+    static final String NO_PASSWORD = "!";
+
+    private static final String ACCOUNT_SQL =
+            "SELECT id, email FROM users WHERE auth_provider = ? AND provider_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserService userService;
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final PlatformTransactionManager transactionManager;
+
+    private String mergeSql;
+
+    @PostConstruct
+    void buildMergeSql() {
+        String nextId = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSelectSequenceNextValString("users_seq");
+        // Standard MERGE (H2, PostgreSQL 15+); nextval only runs for the row it inserts.
+        mergeSql = "MERGE INTO users u "
+                + "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)))) "
+                + "AS s (auth_provider, provider_id, email) "
+                + "ON u.auth_provider = s.auth_provider AND u.provider_id = s.provider_id "
+                + "WHEN MATCHED AND s.email IS NOT NULL AND u.email IS DISTINCT FROM s.email THEN "
+                + "UPDATE SET email = s.email "
+                + "WHEN NOT MATCHED THEN "
+                + "INSERT (id, username, email, password, role, auth_provider, provider_id, enabled, "
+                + "created_at, failed_login_attempts, token_version) "
+                + "VALUES (" + nextId + ", CAST(? AS VARCHAR(255)), s.email, '" + NO_PASSWORD + "', 'USER', "
+                + "s.auth_provider, s.provider_id, TRUE, CURRENT_TIMESTAMP, 0, 0)";
+    }
+
+    public static String username(AuthProvider provider, String providerId) {
+        return provider.name().toLowerCase(Locale.ROOT) + "_" + providerId;
+    }
+
+    /**
+     * Local accounts cannot take a name federated accounts are created with.
+     */
+    public static boolean isReservedUsername(String username) {
+        String lower = username.toLowerCase(Locale.ROOT);
+        for (AuthProvider provider : AuthProvider.values()) {
+            if (provider != AuthProvider.LOCAL && lower.startsWith(provider.name().toLowerCase(Locale.ROOT) + "_")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public User provision(AuthProvider provider, String providerId, String email) {
+        if (provider == AuthProvider.LOCAL || providerId == null || providerId.isBlank()) {
+            throw new IllegalArgumentException("Not a federated account: " + provider + "/" + providerId);
+        }
+        String username = username(provider, providerId);
+        Account current = account(provider, providerId);
+        if (current != null && (email == null || email.equals(current.email()))) {
+            Long userId = current.id();
+            return onPrimary(() -> userService.findById(userId));
+        }
+        int changed;
+        try {
+            changed = merge(provider, providerId, email, username);
+        } catch (DataIntegrityViolationException e) {
+            // Another login for the same account inserted it first; which of its unique keys the losing insert
+            // trips depends on index order. Now the MERGE matches, unless a local account holds the username.
+            if (!isConstraint(e, User.UK_PROVIDER) && !isConstraint(e, User.UK_USERNAME)) {
+                throw duplicateError(e);
+            }
+            current = account(provider, providerId);
+            try {
+                changed = merge(provider, providerId, email, username);
+            } catch (DataIntegrityViolationException retryError) {
+                throw duplicateError(retryError);
+            }
+        }
+        if (changed > 0) {
+            evictUser(username, email, current == null ? null : current.email());
+        }
+        // The MERGE never changes the id of a row it matched; only a new row's id has to be read back.
+        Account known = current;
+        return onPrimary(() -> {
+            Account account = known != null ? known : account(provider, providerId);
+            if (account == null) {
+                throw new RuntimeException("User not found for " + username);
+            }
+            return userService.findById(account.id());
+        });
+    }
+
+    // Outside a transaction or inside a read-write one, so on the primary either way.
+    private Account account(AuthProvider provider, String providerId) {
+        List<Account> accounts = jdbcTemplate.query(ACCOUNT_SQL,
+                (rs, rowNum) -> new Account(rs.getLong("id"), rs.getString("email")), provider.name(), providerId);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    // findById is read-only and would go to the replica; a read-write transaction keeps it on the primary.
+    private User onPrimary(Supplier<User> lookup) {
+        return new TransactionTemplate(transactionManager).execute(status -> lookup.get());
+    }
+
+    private int merge(AuthProvider provider, String providerId, String email, String username) {
+        return jdbcTemplate.update(mergeSql, provider.name(), providerId, email, username);
+    }
+
+    private void evictUser(String username, String email, String previousEmail) {
+        evict("usersByUsername", username);
+        evict("usernameExists", username);
+        evict("usersByEmail", email);
+        evict("emailExists", email);
+        evict("usersByEmail", previousEmail);
+        evict("emailExists", previousEmail);
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private record Account(Long id, String email) {
+    }
+
+    private static boolean isConstraint(DataIntegrityViolationException e, String constraint) {
+        return String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT).contains(constraint);
+    }
+
+    private static RuntimeException duplicateError(DataIntegrityViolationException e) {
+        if (isConstraint(e, User.UK_EMAIL)) {
+            return new AccountConflictException("Email is already registered with another sign-in method",
+                    AccountConflictException.EMAIL_TAKEN);
+        }
+        if (isConstraint(e, User.UK_USERNAME)) {
+            return new AccountConflictException("Username is already taken!", AccountConflictException.USERNAME_TAKEN);
+        }
+        return e;
+    }
+}
@@ -0,0 +1,81 @@
+package com.youssef.spring.security.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked token ids held in memory.
+ * <p>
+ * Lookups hit a single hash map. Each id is also filed in a time bucket by expiry
+ * ({@code bucket-seconds} wide); {@link #purgeExpired()} drops whole buckets once their tokens
+ * have expired, so memory stays proportional to revocations still in force and no per-entry
+ * timers are needed.
+ */
+@Service
+public class InMemoryTokenRevocationStore implements TokenRevocationStore {
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private final long bucketMillis;
+    private final Counter revocations;
+
+    public InMemoryTokenRevocationStore(@Value("${app.jwt.revocation.bucket-seconds:60}") long bucketSeconds,
+                                        MeterRegistry meterRegistry) {
+        this.bucketMillis = TimeUnit.SECONDS.toMillis(bucketSeconds);
+        this.revocations = Counter.builder("auth.jwt.revocations")
+                .description("Tokens revoked before their expiry")
+                .register(meterRegistry);
+        Gauge.builder("auth.jwt.revoked.active", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void revoke(String tokenId, Instant expiresAt) {
+        long expiresAtMillis = expiresAt.toEpochMilli();
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        // Bucket first: an id in the map is then always reachable by the purge.
+        buckets.computeIfAbsent(expiresAtMillis / bucketMillis, bucket -> ConcurrentHashMap.newKeySet()).add(tokenId);
+        if (revoked.put(tokenId, expiresAtMillis) == null) {
+            revocations.increment();
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.bucket-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void purgeExpired() {
+        purgeExpired(System.currentTimeMillis());
+    }
+
+    void purgeExpired(long nowMillis) {
+        // A bucket is done once its whole time slot is in the past.
+        long currentBucket = nowMillis / bucketMillis;
+        Iterator<Map.Entry<Long, Set<String>>> expired = buckets.headMap(currentBucket).entrySet().iterator();
+        while (expired.hasNext()) {
+            expired.next().getValue().forEach(revoked::remove);
+            expired.remove();
+        }
+    }
+}
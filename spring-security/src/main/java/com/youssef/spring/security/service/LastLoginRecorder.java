@@ -0,0 +1,101 @@
+package com.youssef.spring.security.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers {@code users.last_login} updates instead of saving the whole user on every login.
+ * Only the latest timestamp per user is kept, and the buffer is written as one JDBC batch every
+ * {@code flush-interval-ms} and once more on shutdown, so a crash loses at most one interval.
+ */
+@Slf4j
+@Service
+public class LastLoginRecorder {
+
+    static final String UPDATE_SQL = "UPDATE users SET last_login = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final Counter recorded;
+    private final Counter coalesced;
+    private final Counter written;
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.recorded = Counter.builder("auth.last_login.recorded")
+                .description("Logins whose timestamp was buffered")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("auth.last_login.coalesced")
+                .description("Buffered timestamps replaced by a newer login before being written")
+                .register(meterRegistry);
+        this.written = Counter.builder("auth.last_login.written")
+                .description("Rows updated by the batched flush")
+                .register(meterRegistry);
+        Gauge.builder("auth.last_login.pending", pending, Map::size)
+                .description("Users with a timestamp waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public void record(long userId, LocalDateTime loginTime) {
+        recorded.increment();
+        pending.compute(userId, (id, previous) -> {
+            if (previous == null) {
+                return loginTime;
+            }
+            coalesced.increment();
+            return latest(previous, loginTime);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.last-login.flush-interval-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // remove() hands each entry to exactly one flush; a login racing with it starts a new one.
+        List<Long> userIds = new ArrayList<>(pending.keySet());
+        List<Object[]> batch = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            LocalDateTime loginTime = pending.remove(userId);
+            if (loginTime != null) {
+                batch.add(new Object[]{Timestamp.valueOf(loginTime), userId});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            written.increment(batch.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not write {} last login timestamp(s), retrying on next flush: {}",
+                    batch.size(), e.getMessage());
+            for (Object[] row : batch) {
+                pending.merge((Long) row[1], ((Timestamp) row[0]).toLocalDateTime(), LastLoginRecorder::latest);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
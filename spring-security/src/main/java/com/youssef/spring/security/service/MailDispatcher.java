@@ -0,0 +1,169 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.util.VirtualThreads;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues outgoing mail and sends it in batches from a single background thread.
+ * <p>
+ * A batch is sent with {@link JavaMailSender#send(MimeMessage...)}, which opens one SMTP
+ * connection (and one STARTTLS handshake) for the whole batch and reconnects on its own if the
+ * server drops the connection mid-batch. A batch is closed when it reaches {@code batch-size}
+ * messages or when {@code linger-ms} has passed since its first message. A message that fails
+ * fails its future straight away: the outbox owns retries and spaces them with its persisted
+ * backoff, so a second retry loop here would only multiply the attempts.
+ */
+@Slf4j
+@Component
+public class MailDispatcher {
+
+    private final JavaMailSender mailSender;
+    private final BlockingQueue<PendingMail> queue;
+    private final int batchSize;
+    private final long lingerMs;
+    private final ThreadFactory threadFactory;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @Autowired
+    public MailDispatcher(JavaMailSender mailSender,
+                          @Value("${app.mail.batch-size:20}") int batchSize,
+                          @Value("${app.mail.linger-ms:100}") long lingerMs,
+                          @Value("${app.mail.queue-capacity:1000}") int queueCapacity,
+                          @Value("${app.threads.virtual:false}") boolean virtualThreads) {
+        this.mailSender = mailSender;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+        this.threadFactory = virtualThreads ? VirtualThreads.factory("mail-dispatcher-") : runnable -> {
+            Thread thread = new Thread(runnable, "mail-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public MailDispatcher(JavaMailSender mailSender, int batchSize, long lingerMs, int queueCapacity) {
+        this(mailSender, batchSize, lingerMs, queueCapacity, false);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = threadFactory.newThread(this::run);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues the message; the returned future completes once the server accepted it.
+     */
+    public CompletableFuture<Void> submit(MimeMessage message) {
+        PendingMail mail = new PendingMail(message);
+        if (!queue.offer(mail)) {
+            mail.result.completeExceptionally(new RejectedExecutionException("Mail queue is full"));
+        }
+        return mail.result;
+    }
+
+    public int queueSize() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<PendingMail> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Woken up by stop(): flush what is left before exiting.
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<PendingMail> batch) throws InterruptedException {
+        PendingMail first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingMail next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void send(List<PendingMail> batch) {
+        MimeMessage[] messages = new MimeMessage[batch.size()];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = batch.get(i).message;
+        }
+        try {
+            mailSender.send(messages);
+            batch.forEach(mail -> mail.result.complete(null));
+        } catch (MailSendException e) {
+            // Only the messages listed as failed have failed; the others were accepted.
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (PendingMail mail : batch) {
+                Exception cause = failed.isEmpty() ? e : failed.get(mail.message);
+                if (cause == null) {
+                    mail.result.complete(null);
+                } else {
+                    fail(mail, cause);
+                }
+            }
+        } catch (MailException e) {
+            batch.forEach(mail -> fail(mail, e));
+        }
+    }
+
+    private void fail(PendingMail mail, Exception cause) {
+        log.warn("Mail not sent: {}", cause.getMessage());
+        mail.result.completeExceptionally(cause);
+    }
+
+    private static final class PendingMail {
+
+        private final MimeMessage message;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingMail(MimeMessage message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.youssef.spring.security.service;
+
+/**
+ * Thrown when a client or account must slow down; mapped to 429 with Retry-After.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
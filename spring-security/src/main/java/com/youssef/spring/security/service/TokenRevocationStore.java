@@ -0,0 +1,20 @@
+package com.youssef.spring.security.service;
+
+import java.time.Instant;
+
+/**
+ * Denylist of JWT ids ({@code jti}) revoked before their expiry. An entry is only needed until
+ * the token would have expired anyway, so implementations may drop it after {@code expiresAt}.
+ * <p>
+ * {@link InMemoryTokenRevocationStore} is per node; a shared backend (Redis, a database table)
+ * can replace it by declaring a {@code @Primary} bean of this type.
+ */
+public interface TokenRevocationStore {
+
+    void revoke(String tokenId, Instant expiresAt);
+
+    /**
+     * Called for every authenticated request, so it must not block.
+     */
+    boolean isRevoked(String tokenId);
+}
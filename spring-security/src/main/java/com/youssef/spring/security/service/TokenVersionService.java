@@ -0,0 +1,66 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of per-user token versions, used to revoke stateless JWTs without a database
+ * read per request. Only users whose version was ever bumped are tracked, so the map stays small.
+ * Versions only grow, which lets a periodic refresh merge in bumps made on other nodes; until it
+ * runs, a token revoked on another node is still accepted here, for up to {@code version-refresh-ms}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenVersionService {
+
+    private final UserRepository userRepository;
+
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    @Value("${app.jwt.stateless.enabled:false}")
+    private boolean statelessEnabled;
+
+    /**
+     * A token is current unless its version is older than the latest one known for the user.
+     */
+    public boolean isCurrent(long userId, int tokenVersion) {
+        return tokenVersion >= versions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Invalidates every token issued to the user so far. The caller is responsible for saving the user.
+     */
+    public void revokeTokens(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        if (user.getId() != null) {
+            versions.merge(user.getId(), user.getTokenVersion(), Math::max);
+        }
+    }
+
+    /**
+     * Runs before the server accepts requests: with an empty map every token would pass as current,
+     * including the ones revoked before this node started.
+     */
+    @PostConstruct
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.stateless.version-refresh-ms:30000}")
+    public void refresh() {
+        if (!statelessEnabled) {
+            return;
+        }
+        for (Object[] row : userRepository.findBumpedTokenVersions()) {
+            versions.merge((Long) row[0], (Integer) row[1], Math::max);
+        }
+    }
+}
@@ -3,34 +3,91 @@ package com.youssef.spring.security.service;
 
 import com.youssef.spring.security.entity.User;
 import com.youssef.spring.security.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final Timer byUsernameTimer;
+    private final Timer byEmailTimer;
+    private final Timer byIdTimer;
+
+    public UserService(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.byUsernameTimer = lookupTimer("username", meterRegistry);
+        this.byEmailTimer = lookupTimer("email", meterRegistry);
+        this.byIdTimer = lookupTimer("id", meterRegistry);
+    }
+
+    // Includes cache hits, so the percentiles show how often lookups really reach the database.
+    private static Timer lookupTimer(String key, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.user.lookup")
+                .description("Time to load a user, cache included")
+                .tag("by", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        long start = System.nanoTime();
+        Optional<User> user = userRepository.findByUsername(username);
+        byUsernameTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return user.orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
 
     public User findByEmail(String email) {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        long start = System.nanoTime();
+        Optional<User> user = userRepository.findByEmail(email);
+        byEmailTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return user.orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+    }
+
+    public User findById(Long id) {
+        long start = System.nanoTime();
+        Optional<User> user = userRepository.findById(id);
+        byIdTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return user.orElseThrow(() -> new RuntimeException("User not found with id: " + id));
     }
 
     public User save(User user) {
         return userRepository.save(user);
     }
 
+    /**
+     * Inserts a new user straight away, so a duplicate username or email surfaces here as a
+     * {@link org.springframework.dao.DataIntegrityViolationException} from the unique constraints.
+     */
+    public User create(User user) {
+        return userRepository.saveAndFlush(user);
+    }
+
+    /**
+     * Called by {@code DaoAuthenticationProvider} after a successful login when the stored hash
+     * uses an outdated algorithm or cost. The user is read again from the primary inside the
+     * transaction: the one passed in is a cached copy, and saving it would write its outdated
+     * {@code last_login} and lockout columns back over the newer ones.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = findById(((User) userDetails).getId());
+        user.setPassword(newPassword);
+        return save(user);
+    }
+
     public boolean existsByUsername(String username) {
         return userRepository.existsByUsername(username);
     }
@@ -0,0 +1,322 @@
+package com.youssef.spring.security.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keys used to sign and verify JWTs, looked up by the {@code kid} header.
+ * <p>
+ * With {@code app.jwt.algorithm=HS256} the ring holds the shared {@code app.jwt.secret} and tokens
+ * carry no {@code kid}, as before. With an asymmetric algorithm (RS256, ES256, ...) tokens are signed
+ * with a private key and every public key is published at {@code /.well-known/jwks.json}, so other
+ * services verify tokens on their own.
+ * <p>
+ * Several instances share a PKCS12 keystore ({@code app.jwt.keys.keystore}, one entry per kid). Each
+ * certificate's start date is its kid's schedule: the key with the latest start date already
+ * reached signs, the next one is published ahead of it, and every entry verifies until it is
+ * removed from the file. The keystore is read again every {@code keystore-refresh-ms}, so a key
+ * added with a future start date takes over on every instance without a restart.
+ * {@code signing-alias} pins one entry instead. Without a keystore, keys are generated in memory
+ * and rotated every {@code rotation-ms}: the next key is published one rotation before it signs
+ * anything, and a retired key stays verifiable for one token lifetime. Those keys exist on one
+ * instance only, so tokens do not verify elsewhere.
+ * <p>
+ * The whole ring is an immutable snapshot swapped on rotation, so a lookup is a single map read.
+ */
+@Slf4j
+@Component
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    @Value("${app.jwt.algorithm:HS256}")
+    private String algorithm;
+
+    @Value("${app.jwt.secret}")
+    private String secret;
+
+    @Value("${app.jwt.expiration}")
+    private long tokenLifetimeMs;
+
+    @Value("${app.jwt.keys.keystore:}")
+    private String keystoreLocation;
+
+    @Value("${app.jwt.keys.keystore-password:}")
+    private String keystorePassword;
+
+    @Value("${app.jwt.keys.signing-alias:}")
+    private String signingAlias;
+
+    private SignatureAlgorithm signatureAlgorithm;
+    private volatile Ring ring;
+
+    public record SigningKey(String kid, Key signingKey, Key verificationKey) {
+    }
+
+    private record Ring(SigningKey active, SigningKey next, Map<String, SigningKey> keys,
+                        Map<String, Long> retiredUntil, Map<String, Object> jwks) {
+    }
+
+    @PostConstruct
+    public void init() {
+        if ("EdDSA".equalsIgnoreCase(algorithm)) {
+            throw new IllegalStateException("EdDSA is not supported by the JJWT version in use, use RS256 or ES256");
+        }
+        signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+        if (signatureAlgorithm.isHmac()) {
+            Key key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+            ring = new Ring(new SigningKey(null, key, key), null, Map.of(), Map.of(), Map.of("keys", List.of()));
+        } else if (usesKeystore()) {
+            ring = loadKeystore(System.currentTimeMillis());
+        } else {
+            ring = build(generate(), generate(), Map.of(), Map.of());
+            log.warn("JWT keys are generated in memory: tokens only verify on this instance, "
+                    + "set app.jwt.keys.keystore to share keys between instances");
+        }
+        log.info("JWT signing with {}, {} verification key(s)", signatureAlgorithm.getValue(), ring.keys().size());
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public SigningKey signingKey() {
+        return ring.active();
+    }
+
+    /**
+     * JWK set of every public key that may have signed a live token, plus the next one.
+     */
+    public Map<String, Object> getJwks() {
+        return ring.jwks();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.keys.rotation-ms:86400000}",
+            initialDelayString = "${app.jwt.keys.rotation-ms:86400000}")
+    public void rotate() {
+        if (signatureAlgorithm.isHmac() || usesKeystore()) {
+            return;
+        }
+        rotate(System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.keys.keystore-refresh-ms:60000}",
+            initialDelayString = "${app.jwt.keys.keystore-refresh-ms:60000}")
+    public void refreshKeystore() {
+        if (signatureAlgorithm.isHmac() || !usesKeystore()) {
+            return;
+        }
+        refreshKeystore(System.currentTimeMillis());
+    }
+
+    void refreshKeystore(long nowMillis) {
+        Ring loaded;
+        try {
+            loaded = loadKeystore(nowMillis);
+        } catch (IllegalStateException e) {
+            log.warn("Keeping the current JWT keys: {}", e.getMessage(), e);
+            return;
+        }
+        if (!loaded.active().kid().equals(ring.active().kid())) {
+            log.info("JWT signing key is now {}, {} verification key(s)", loaded.active().kid(), loaded.keys().size());
+        }
+        ring = loaded;
+    }
+
+    void rotate(long nowMillis) {
+        Ring current = ring;
+        Map<String, Long> retiredUntil = new HashMap<>(current.retiredUntil());
+        retiredUntil.values().removeIf(until -> until <= nowMillis);
+        // Tokens signed by the outgoing key live at most one more token lifetime.
+        retiredUntil.put(current.active().kid(), nowMillis + tokenLifetimeMs);
+        Map<String, SigningKey> retired = new HashMap<>();
+        for (String kid : retiredUntil.keySet()) {
+            retired.put(kid, current.keys().get(kid));
+        }
+        ring = build(current.next(), generate(), retired, retiredUntil);
+        log.info("Rotated JWT signing key to {}, {} key(s) retired", ring.active().kid(), retired.size());
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        return resolve(header);
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, String plaintext) {
+        return resolve(header);
+    }
+
+    private Key resolve(JwsHeader header) {
+        Ring current = ring;
+        // HMAC tokens may use any HS variant the secret allows; asymmetric ones must use the configured one.
+        boolean expected = signatureAlgorithm.isHmac()
+                ? String.valueOf(header.getAlgorithm()).startsWith("HS")
+                : signatureAlgorithm.getValue().equals(header.getAlgorithm());
+        if (!expected) {
+            throw new SignatureException("Unexpected JWT algorithm " + header.getAlgorithm());
+        }
+        if (signatureAlgorithm.isHmac()) {
+            return current.active().verificationKey();
+        }
+        String kid = header.getKeyId();
+        SigningKey key = kid == null ? null : current.keys().get(kid);
+        if (key == null) {
+            throw new SignatureException("Unknown JWT signing key " + kid);
+        }
+        return key.verificationKey();
+    }
+
+    private boolean usesKeystore() {
+        return keystoreLocation != null && !keystoreLocation.isBlank();
+    }
+
+    private Ring build(SigningKey active, SigningKey next, Map<String, SigningKey> retired,
+                       Map<String, Long> retiredUntil) {
+        Map<String, SigningKey> keys = new LinkedHashMap<>();
+        keys.put(active.kid(), active);
+        if (next != null) {
+            keys.put(next.kid(), next);
+        }
+        keys.putAll(retired);
+        List<Map<String, Object>> jwks = new ArrayList<>();
+        for (SigningKey key : keys.values()) {
+            jwks.add(toJwk(key));
+        }
+        return new Ring(active, next, Collections.unmodifiableMap(keys), Map.copyOf(retiredUntil),
+                Map.of("keys", List.copyOf(jwks)));
+    }
+
+    private SigningKey generate() {
+        KeyPair keyPair = Keys.keyPairFor(signatureAlgorithm);
+        return new SigningKey(thumbprint(keyPair.getPublic()), keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    private Ring loadKeystore(long nowMillis) {
+        try (InputStream in = new DefaultResourceLoader().getResource(keystoreLocation).getInputStream()) {
+            char[] password = keystorePassword.toCharArray();
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(in, password);
+            boolean pinned = signingAlias != null && !signingAlias.isBlank();
+            SigningKey active = null;
+            SigningKey next = null;
+            long activeSince = Long.MIN_VALUE;
+            long nextFrom = Long.MAX_VALUE;
+            Map<String, SigningKey> others = new HashMap<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                Certificate certificate = keyStore.getCertificate(alias);
+                if (certificate == null) {
+                    continue;
+                }
+                Key privateKey = keyStore.isKeyEntry(alias) ? keyStore.getKey(alias, password) : null;
+                SigningKey key = new SigningKey(alias, privateKey, certificate.getPublicKey());
+                others.put(alias, key);
+                if (privateKey == null) {
+                    continue;
+                }
+                if (pinned) {
+                    if (alias.equals(signingAlias)) {
+                        active = key;
+                    }
+                    continue;
+                }
+                long from = certificate instanceof X509Certificate x509 ? x509.getNotBefore().getTime() : Long.MIN_VALUE;
+                // Equal start dates fall back to the alias, so every instance picks the same key.
+                if (from <= nowMillis && (active == null || from > activeSince
+                        || from == activeSince && alias.compareTo(active.kid()) > 0)) {
+                    active = key;
+                    activeSince = from;
+                } else if (from > nowMillis && from < nextFrom) {
+                    next = key;
+                    nextFrom = from;
+                }
+            }
+            if (active == null) {
+                throw new IllegalStateException(pinned
+                        ? "No private key for signing alias '" + signingAlias + "' in " + keystoreLocation
+                        : "No private key in " + keystoreLocation + " has reached its start date");
+            }
+            others.remove(active.kid());
+            if (next != null) {
+                others.remove(next.kid());
+            }
+            return build(active, next, others, Map.of());
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load JWT keystore " + keystoreLocation, e);
+        }
+    }
+
+    private Map<String, Object> toJwk(SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kid", key.kid());
+        jwk.put("use", "sig");
+        jwk.put("alg", signatureAlgorithm.getValue());
+        if (key.verificationKey() instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64(rsa.getModulus(), (rsa.getModulus().bitLength() + 7) / 8));
+            jwk.put("e", base64(rsa.getPublicExponent(), (rsa.getPublicExponent().bitLength() + 7) / 8));
+        } else if (key.verificationKey() instanceof ECPublicKey ec) {
+            int fieldSize = ec.getParams().getCurve().getField().getFieldSize();
+            int length = (fieldSize + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-" + fieldSize);
+            jwk.put("x", base64(ec.getW().getAffineX(), length));
+            jwk.put("y", base64(ec.getW().getAffineY(), length));
+        } else {
+            throw new IllegalStateException("Unsupported JWT verification key " + key.verificationKey().getAlgorithm());
+        }
+        return jwk;
+    }
+
+    // Unsigned big-endian, left-padded to the fixed length the JWK format expects.
+    private static String base64(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] unsigned = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, unsigned, length - copy, copy);
+        return ENCODER.encodeToString(unsigned);
+    }
+
+    private static String thumbprint(PublicKey key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            return ENCODER.encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
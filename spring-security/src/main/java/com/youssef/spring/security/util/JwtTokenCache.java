@@ -0,0 +1,98 @@
+package com.youssef.spring.security.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers tokens that already passed {@link JwtUtil#verifyToken(String)} so repeated requests
+ * with the same bearer token skip the HMAC check and claims parsing.
+ * <p>
+ * Entries are keyed on the SHA-256 of the token, so raw tokens are never retained, and each one
+ * expires exactly when the token's {@code exp} passes. Failed verifications are never cached.
+ */
+@Component
+public class JwtTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final boolean enabled;
+    private final Cache<ByteBuffer, JwtVerification> cache;
+
+    public JwtTokenCache(JwtUtil jwtUtil,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.jwt.cache.enabled:false}") boolean enabled,
+                         @Value("${app.jwt.cache.max-size:10000}") long maxSize) {
+        this.jwtUtil = jwtUtil;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtTokens");
+    }
+
+    public JwtVerification verify(String token) {
+        if (!enabled || token == null) {
+            return jwtUtil.verifyToken(token);
+        }
+        ByteBuffer key = hash(token);
+        JwtVerification cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        JwtVerification verification = jwtUtil.verifyToken(token);
+        if (verification.isValid() && verification.getExpiration() != null) {
+            cache.put(key, verification);
+        }
+        return verification;
+    }
+
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class TokenExpiry implements Expiry<ByteBuffer, JwtVerification> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, JwtVerification value, long currentTime) {
+            long remainingMillis = value.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, JwtVerification value, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, JwtVerification value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
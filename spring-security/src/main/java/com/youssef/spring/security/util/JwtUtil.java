@@ -1,70 +1,160 @@
 package com.youssef.spring.security.util;
 
 
+import com.youssef.spring.security.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
-import lombok.Data;
-import org.hibernate.annotations.Comment;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.websocket.servlet.TomcatWebSocketServletWebServerCustomizer;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
-import java.util.Base64;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 
 @Component
-
+@RequiredArgsConstructor
 
 public class JwtUtil {
 
-    @Value("${app.jwt.secret}")
-    private String jwtSecret;
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_ENABLED = "enabled";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
 
     @Value("${app.jwt.expiration}")
     private long jwtExpiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private final MeterRegistry meterRegistry;
+    private final JwtKeyRing keyRing;
+
+    // Immutable and thread-safe, so it is built once instead of per token; keys are resolved by kid.
+    private JwtParser parser;
+
+    // Meters are looked up once here; the hot path only records into them.
+    private Timer signTimer;
+    private Timer verifyTimer;
+    private final Map<JwtVerification.Failure, Counter> verifyFailures = new EnumMap<>(JwtVerification.Failure.class);
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .build();
+
+        signTimer = Timer.builder("auth.jwt.sign")
+                .description("Time to build and sign a JWT")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        verifyTimer = Timer.builder("auth.jwt.verify")
+                .description("Time to check a JWT signature and expiry and parse its claims")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        for (JwtVerification.Failure failure : JwtVerification.Failure.values()) {
+            verifyFailures.put(failure, Counter.builder("auth.jwt.verify.failures")
+                    .description("Rejected JWTs by reason")
+                    .tag("reason", failure.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
     }
 
 
     public String generateToken(String username) {
+        long start = System.nanoTime();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
-        return Jwts.builder()
+        String token = sign(Jwts.builder()
                 .setSubject(username)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(now)
-                .setExpiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
+                .setExpiration(expiryDate));
+        signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
     }
 
+    /**
+     * Issues a token that also carries what the filter needs to authenticate the user
+     * without loading it from the database (see {@code app.jwt.stateless.enabled}).
+     */
+    public String generateToken(User user) {
+        long start = System.nanoTime();
+        Date now = new Date();
+        Date expiryDate = new Date(now.getTime() + jwtExpiration);
+        String token = sign(Jwts.builder()
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole().name())
+                .claim(CLAIM_ENABLED, user.isEnabled())
+                .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion())
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(now)
+                .setExpiration(expiryDate));
+        signTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return token;
+    }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
+    private String sign(JwtBuilder builder) {
+        JwtKeyRing.SigningKey key = keyRing.signingKey();
+        if (key.kid() != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, key.kid());
+        }
+        return builder.signWith(key.signingKey(), keyRing.getAlgorithm()).compact();
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the signature and expiry of the token once and returns its claims,
+     * or the reason it was rejected.
+     */
+    public JwtVerification verifyToken(String token) {
+        long start = System.nanoTime();
+        JwtVerification verification = parse(token);
+        verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!verification.isValid()) {
+            verifyFailures.get(verification.getFailure()).increment();
+        }
+        return verification;
+    }
+
+    private JwtVerification parse(String token) {
+        if (token == null || token.isBlank()) {
+            return JwtVerification.failure(JwtVerification.Failure.EMPTY);
+        }
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            return JwtVerification.success(claims);
+        } catch (ExpiredJwtException e) {
+            return JwtVerification.failure(JwtVerification.Failure.EXPIRED);
+        } catch (SecurityException e) {
+            return JwtVerification.failure(JwtVerification.Failure.INVALID_SIGNATURE);
+        } catch (UnsupportedJwtException e) {
+            return JwtVerification.failure(JwtVerification.Failure.UNSUPPORTED);
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return JwtVerification.failure(JwtVerification.Failure.MALFORMED);
         }
+    }
 
 
+    public String getUsernameFromToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    public boolean validateToken(String token) {
+        return verifyToken(token).isValid();
     }
 
 
@@ -0,0 +1,55 @@
+package com.youssef.spring.security.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Outcome of a single JWT parse: either the verified claims or the reason verification failed.
+ */
+public final class JwtVerification {
+
+    public enum Failure {
+        EMPTY, MALFORMED, INVALID_SIGNATURE, EXPIRED, UNSUPPORTED
+    }
+
+    private final Claims claims;
+    private final Failure failure;
+
+    private JwtVerification(Claims claims, Failure failure) {
+        this.claims = claims;
+        this.failure = failure;
+    }
+
+    public static JwtVerification success(Claims claims) {
+        return new JwtVerification(claims, null);
+    }
+
+    public static JwtVerification failure(Failure failure) {
+        return new JwtVerification(null, failure);
+    }
+
+    public boolean isValid() {
+        return failure == null;
+    }
+
+    public Failure getFailure() {
+        return failure;
+    }
+
+    public Claims getClaims() {
+        return claims;
+    }
+
+    public String getUsername() {
+        return claims.getSubject();
+    }
+
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+
+    public Date getIssuedAt() {
+        return claims.getIssuedAt();
+    }
+}
@@ -0,0 +1,69 @@
+package com.youssef.spring.security.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per key, stored as a single "theoretical arrival time" (GCRA): a request takes one
+ * token by moving it forward by {@code refillPeriod}, and is refused when that would put it more
+ * than {@code capacity} periods ahead of now. Taking a token is one compare-and-set, no lock.
+ * <p>
+ * Keys live in a bounded Caffeine map and expire once their bucket would be full again, so an idle
+ * key costs nothing. Under a flood of distinct keys the least recently used ones are dropped,
+ * which only gives them a full bucket back.
+ */
+public class RateLimiter {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final Cache<String, AtomicLong> buckets;
+    private final LongSupplier clock;
+    private final Counter rejected;
+
+    public RateLimiter(String name, int capacity, Duration refillPeriod, long maxKeys, MeterRegistry meterRegistry) {
+        this(name, capacity, refillPeriod, maxKeys, meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(String name, int capacity, Duration refillPeriod, long maxKeys, MeterRegistry meterRegistry,
+                LongSupplier clock) {
+        this.refillNanos = refillPeriod.toNanos();
+        this.burstNanos = refillNanos * capacity;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(burstNanos, TimeUnit.NANOSECONDS)
+                .build();
+        this.rejected = Counter.builder("auth.rate_limit.rejected")
+                .description("Requests refused by a rate limiter")
+                .tag("limiter", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token for the key; returns 0 if one was available, otherwise the nanoseconds until
+     * the next one will be.
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(key, k -> new AtomicLong(now));
+        while (true) {
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + refillNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+}
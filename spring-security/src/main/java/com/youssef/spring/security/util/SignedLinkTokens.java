@@ -0,0 +1,199 @@
+package com.youssef.spring.security.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.youssef.spring.security.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stateless email-verification and password-reset links ({@code app.links.token-format=signed}).
+ * <p>
+ * A token is {@code base64url(payload) "." base64url(HMAC-SHA256(payload))}, where the payload
+ * holds the purpose, user id, expiry and an 8-byte fingerprint of the state the link acts on:
+ * the email for verification, the current password hash for resets. Checking a token needs no
+ * database read; once the password changes, every older reset link stops matching.
+ * Tokens that were used are remembered until they expire, keyed on their MAC.
+ */
+@Component
+public class SignedLinkTokens {
+
+    public enum Purpose {
+        EMAIL_VERIFICATION, PASSWORD_RESET
+    }
+
+    public enum Failure {
+        MALFORMED, INVALID_SIGNATURE, WRONG_PURPOSE, EXPIRED
+    }
+
+    private static final byte VERSION = 1;
+    private static final int PAYLOAD_LENGTH = 1 + 1 + Long.BYTES + Long.BYTES + 8;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final long expirationMs;
+    private final Cache<ByteBuffer, Long> usedTokens;
+
+    public SignedLinkTokens(@Value("${app.links.secret:${app.jwt.secret}}") String secret,
+                            @Value("${app.links.expiration-ms:86400000}") long expirationMs,
+                            @Value("${app.links.used-tokens.max-size:100000}") long usedTokensMaxSize) {
+        this.key = new SecretKeySpec(("link-tokens:" + secret).getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.expirationMs = expirationMs;
+        this.usedTokens = Caffeine.newBuilder()
+                .maximumSize(usedTokensMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
+    /**
+     * Signed tokens always contain a '.', the UUIDs of the database format never do.
+     */
+    public static boolean isSigned(String token) {
+        return token != null && token.indexOf('.') > 0;
+    }
+
+    public String issue(Purpose purpose, User user) {
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_LENGTH)
+                .put(VERSION)
+                .put((byte) purpose.ordinal())
+                .putLong(user.getId())
+                .putLong(System.currentTimeMillis() + expirationMs)
+                .put(fingerprint(purpose, user));
+        byte[] bytes = payload.array();
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(mac(bytes));
+    }
+
+    public Verification verify(String token, Purpose purpose) {
+        if (!isSigned(token)) {
+            return Verification.failure(Failure.MALFORMED);
+        }
+        int dot = token.indexOf('.');
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Verification.failure(Failure.MALFORMED);
+        }
+        if (payload.length != PAYLOAD_LENGTH || payload[0] != VERSION) {
+            return Verification.failure(Failure.MALFORMED);
+        }
+        if (!MessageDigest.isEqual(mac(payload), signature)) {
+            return Verification.failure(Failure.INVALID_SIGNATURE);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 2, PAYLOAD_LENGTH - 2);
+        if (payload[1] != purpose.ordinal()) {
+            return Verification.failure(Failure.WRONG_PURPOSE);
+        }
+        long userId = buffer.getLong();
+        long expiresAt = buffer.getLong();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return Verification.failure(Failure.EXPIRED);
+        }
+        byte[] fingerprint = new byte[8];
+        buffer.get(fingerprint);
+        return new Verification(null, purpose, userId, expiresAt, fingerprint, ByteBuffer.wrap(signature));
+    }
+
+    /**
+     * Whether the token was issued against the user's current email or password hash.
+     */
+    public boolean matches(Verification verification, User user) {
+        return MessageDigest.isEqual(verification.fingerprint, fingerprint(verification.purpose, user));
+    }
+
+    /**
+     * Records the token as used; returns {@code false} if it already was.
+     */
+    public boolean markUsed(Verification verification) {
+        return usedTokens.asMap().putIfAbsent(verification.signature, verification.expiresAt) == null;
+    }
+
+    private byte[] mac(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static byte[] fingerprint(Purpose purpose, User user) {
+        String state = purpose == Purpose.PASSWORD_RESET ? user.getPassword() : user.getEmail();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(state.getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(digest, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static final class Verification {
+
+        private final Failure failure;
+        private final Purpose purpose;
+        private final long userId;
+        private final long expiresAt;
+        private final byte[] fingerprint;
+        private final ByteBuffer signature;
+
+        private Verification(Failure failure, Purpose purpose, long userId, long expiresAt,
+                             byte[] fingerprint, ByteBuffer signature) {
+            this.failure = failure;
+            this.purpose = purpose;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+            this.fingerprint = fingerprint;
+            this.signature = signature;
+        }
+
+        private static Verification failure(Failure failure) {
+            return new Verification(failure, null, 0, 0, null, null);
+        }
+
+        public boolean isValid() {
+            return failure == null;
+        }
+
+        public Failure getFailure() {
+            return failure;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, Long> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Long expiresAt, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Long expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Long expiresAt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
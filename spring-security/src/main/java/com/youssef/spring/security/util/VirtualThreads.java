@@ -0,0 +1,55 @@
+package com.youssef.spring.security.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads while the project still compiles for Java 17. The JDK methods are
+ * looked up reflectively, so the same build runs on 17 (platform threads only) and on 21+.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        requireSupport();
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * {@code Thread.ofVirtual().name(prefix, 0).factory()}.
+     */
+    public static ThreadFactory factory(String namePrefix) {
+        requireSupport();
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderType.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a virtual thread factory", e);
+        }
+    }
+
+    private static void requireSupport() {
+        if (!isSupported()) {
+            throw new IllegalStateException("app.threads.virtual=true needs Java 21 or later, running on "
+                    + Runtime.version());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+-- Schema as the entities map it; the prod profile validates against this instead of generating it.
+-- Standard SQL, runs on PostgreSQL and on H2.
+
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+    id                    BIGINT       NOT NULL,
+    username              VARCHAR(255),
+    email                 VARCHAR(255),
+    password              VARCHAR(255),
+    role                  VARCHAR(255) CHECK (role IN ('USER', 'ADMIN')),
+    auth_provider         VARCHAR(255) CHECK (auth_provider IN ('LOCAL', 'GOOGLE', 'GITHUB')),
+    provider_id           VARCHAR(255),
+    enabled               BOOLEAN      NOT NULL,
+    token_version         INTEGER      NOT NULL,
+    failed_login_attempts INTEGER      NOT NULL,
+    locked_until          TIMESTAMP(6),
+    last_login            TIMESTAMP(6),
+    created_at            TIMESTAMP(6),
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_provider UNIQUE (auth_provider, provider_id)
+);
+
+CREATE TABLE email_verification_tokens (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    token       VARCHAR(255) NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    expiry_date TIMESTAMP(6) NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_email_verification_tokens PRIMARY KEY (id),
+    CONSTRAINT uk_email_verification_tokens_token UNIQUE (token),
+    CONSTRAINT uk_email_verification_tokens_user_id UNIQUE (user_id),
+    CONSTRAINT fk_email_verification_tokens_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE password_reset_tokens (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    token       VARCHAR(255) NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    expiry_date TIMESTAMP(6) NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    used        BOOLEAN      NOT NULL,
+    CONSTRAINT pk_password_reset_tokens PRIMARY KEY (id),
+    CONSTRAINT uk_password_reset_tokens_token UNIQUE (token),
+    CONSTRAINT fk_password_reset_tokens_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE email_outbox (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    recipient       VARCHAR(255)  NOT NULL,
+    subject         VARCHAR(255)  NOT NULL,
+    body            VARCHAR(2000) NOT NULL,
+    status          VARCHAR(255)  NOT NULL CHECK (status IN ('PENDING', 'FAILED')),
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6)  NOT NULL,
+    last_error      VARCHAR(1000),
+    created_at      TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT pk_email_outbox PRIMARY KEY (id)
+);
+
+-- deleteByUserId on every new reset token, and the foreign key (no automatic index on PostgreSQL);
+-- verification tokens use uk_email_verification_tokens_user_id
+CREATE INDEX idx_password_reset_tokens_user_id ON password_reset_tokens (user_id);
+
+-- ExpiredTokenReaper
+CREATE INDEX idx_email_verification_tokens_expiry_date ON email_verification_tokens (expiry_date);
+CREATE INDEX idx_password_reset_tokens_expiry_date ON password_reset_tokens (expiry_date);
+
+-- EmailOutboxDrainer
+CREATE INDEX idx_email_outbox_status_next_attempt ON email_outbox (status, next_attempt_at);
@@ -0,0 +1,84 @@
+package com.youssef.spring.security;
+
+import com.youssef.spring.security.dto.AuthRequest;
+import com.youssef.spring.security.dto.RegisterRequest;
+import com.youssef.spring.security.entity.AuthProvider;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import com.youssef.spring.security.service.AuthService;
+import com.youssef.spring.security.service.FederatedUserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the prod profile on H2 in PostgreSQL mode: Flyway builds the schema and Hibernate's
+ * validation has to accept it, then the write paths run against the migrated tables.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:prod;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.jwt.secret=mySecretKey12345678901234567890123456789012345678901234567890",
+        "app.metrics.scrape.password=scrape-password",
+        "app.security.password.strength=4"
+})
+@ActiveProfiles("prod")
+class ProdProfileTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private FederatedUserService federatedUserService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private Environment environment;
+
+    @Test
+    void migratesValidatesAndServesTheAuthFlows() {
+        assertEquals("1", flyway.info().current().getVersion().getVersion());
+        assertEquals("validate", environment.getProperty("spring.jpa.hibernate.ddl-auto"));
+        assertEquals("false", environment.getProperty("spring.jpa.show-sql"));
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT index_name FROM information_schema.indexes WHERE index_name LIKE 'idx_%'", String.class);
+        assertTrue(indexes.containsAll(List.of(
+                "idx_password_reset_tokens_user_id",
+                "idx_email_verification_tokens_expiry_date", "idx_password_reset_tokens_expiry_date",
+                "idx_email_outbox_status_next_attempt")), indexes.toString());
+
+        RegisterRequest register = new RegisterRequest();
+        register.setUsername("produser");
+        register.setEmail("produser@example.com");
+        register.setPassword("password");
+        authService.register(register);
+        User user = userRepository.findByUsername("produser").orElseThrow();
+        user.setEnabled(true);
+        userRepository.save(user);
+        AuthRequest login = new AuthRequest();
+        login.setUsername("produser");
+        login.setPassword("password");
+
+        assertNotNull(authService.login(login).getToken());
+        assertEquals("github_prod-1", federatedUserService.provision(AuthProvider.GITHUB, "prod-1", "prod-1@example.com").getUsername());
+    }
+}
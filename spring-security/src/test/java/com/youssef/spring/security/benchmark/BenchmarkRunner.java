@@ -0,0 +1,36 @@
+package com.youssef.spring.security.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the authentication hot-path benchmarks with throughput, average time and sampled
+ * latency (p50/p99...) plus the GC allocation profiler, and writes the results as JSON to
+ * {@code target/jmh-result.json}. Any standard JMH command line option can be passed,
+ * e.g. a regex to run a single class. Launched by the {@code benchmark} Maven profile.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json");
+
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*Benchmark");
+        }
+        if (commandLine.getBenchModes().isEmpty()) {
+            options.mode(Mode.Throughput).mode(Mode.AverageTime).mode(Mode.SampleTime);
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.youssef.spring.security.benchmark;
+
+import com.youssef.spring.security.config.JwtAuthenticationFilter;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.service.InMemoryTokenRevocationStore;
+import com.youssef.spring.security.service.TokenVersionService;
+import com.youssef.spring.security.service.UserService;
+import com.youssef.spring.security.util.JwtTokenCache;
+import com.youssef.spring.security.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One authenticated request through {@link JwtAuthenticationFilter} with a no-op chain.
+ * The user lookup is stubbed in memory, so this measures the filter itself, not the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"false", "true"})
+    private boolean tokenCache;
+
+    @Param({"false", "true"})
+    private boolean stateless;
+
+    private JwtAuthenticationFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark-user");
+        user.setEnabled(true);
+
+        UserService userService = new UserService(null, new SimpleMeterRegistry()) {
+            @Override
+            public UserDetails loadUserByUsername(String username) {
+                return user;
+            }
+        };
+
+        JwtUtil jwtUtil = JwtUtilBenchmark.newJwtUtil();
+        JwtTokenCache jwtTokenCache = new JwtTokenCache(jwtUtil, new SimpleMeterRegistry(), tokenCache, 10_000);
+        filter = new JwtAuthenticationFilter(jwtTokenCache, userService, new TokenVersionService(null),
+                new InMemoryTokenRevocationStore(60, new SimpleMeterRegistry()),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "statelessEnabled", stateless);
+
+        authorizationHeader = "Bearer " + jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Object doFilter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/profile");
+        request.addHeader("Authorization", authorizationHeader);
+        filter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
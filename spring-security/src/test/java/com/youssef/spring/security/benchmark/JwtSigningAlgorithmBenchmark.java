@@ -0,0 +1,51 @@
+package com.youssef.spring.security.benchmark;
+
+import com.youssef.spring.security.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify cost per {@code app.jwt.algorithm}: the price of letting other services verify
+ * tokens from the JWKS instead of sharing the HMAC secret.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JwtSigningAlgorithmBenchmark {
+
+    @Param({"HS256", "RS256", "ES256"})
+    private String algorithm;
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = JwtUtilBenchmark.newJwtUtil(algorithm);
+        token = jwtUtil.generateToken("benchmark-user");
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtil.generateToken("benchmark-user");
+    }
+
+    @Benchmark
+    public String verify() {
+        return jwtUtil.verifyToken(token).getUsername();
+    }
+}
@@ -0,0 +1,104 @@
+package com.youssef.spring.security.benchmark;
+
+import com.youssef.spring.security.util.JwtKeyRing;
+import com.youssef.spring.security.util.JwtTokenCache;
+import com.youssef.spring.security.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing and checking tokens, including the old validate-then-parse sequence against a
+ * single {@link JwtUtil#verifyToken(String)} call and against a hit in {@link JwtTokenCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    static final String SECRET = "mySecretKey12345678901234567890123456789012345678901234567890";
+
+    private JwtUtil jwtUtil;
+    private JwtTokenCache jwtTokenCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = newJwtUtil();
+        jwtTokenCache = new JwtTokenCache(jwtUtil, new SimpleMeterRegistry(), true, 10_000);
+        token = jwtUtil.generateToken("benchmark-user");
+    }
+
+    static JwtUtil newJwtUtil() {
+        return newJwtUtil("HS256");
+    }
+
+    static JwtUtil newJwtUtil(String algorithm) {
+        JwtKeyRing keyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "algorithm", algorithm);
+        ReflectionTestUtils.setField(keyRing, "secret", SECRET);
+        ReflectionTestUtils.setField(keyRing, "tokenLifetimeMs", 86400000L);
+        keyRing.init();
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), keyRing);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 86400000L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    /** What the filter used to do: two full parses, each rebuilding the key and the parser. */
+    @Benchmark
+    public String validateThenParseLegacy() {
+        Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token);
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+        return claims.getSubject();
+    }
+
+    @Benchmark
+    public String verifyOnce() {
+        return jwtUtil.verifyToken(token).getUsername();
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return jwtTokenCache.verify(token).getUsername();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken("benchmark-user");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwtUtil.getUsernameFromToken(token);
+    }
+}
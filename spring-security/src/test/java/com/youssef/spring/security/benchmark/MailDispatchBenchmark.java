@@ -0,0 +1,98 @@
+package com.youssef.spring.security.benchmark;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.youssef.spring.security.service.MailDispatcher;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emails per second against an in-process SMTP server (GreenMail, plain SMTP): one connection
+ * per message, as {@code EmailService} used to do, against batches through {@link MailDispatcher}.
+ * Against a real server with STARTTLS the per-connection cost, and so the gap, is larger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MailDispatchBenchmark {
+
+    private static final int MESSAGES = 20;
+
+    private GreenMail smtpServer;
+    private JavaMailSenderImpl mailSender;
+    private MailDispatcher dispatcher;
+    private MimeMessage[] messages;
+
+    @Setup
+    public void setUp() throws MessagingException {
+        smtpServer = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        smtpServer.start();
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getSmtp().getPort());
+
+        dispatcher = new MailDispatcher(mailSender, MESSAGES, 5, 10_000);
+        dispatcher.start();
+
+        messages = new MimeMessage[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(messages[i]);
+            helper.setFrom("noreply@example.com");
+            helper.setTo("user" + i + "@example.com");
+            helper.setSubject("Email Verification");
+            helper.setText("Please click the following link to verify your email");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void purgeMailboxes() throws Exception {
+        smtpServer.purgeEmailFromAllMailboxes();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        dispatcher.stop();
+        smtpServer.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void sendOneByOne() {
+        for (MimeMessage message : messages) {
+            mailSender.send(message);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void sendBatched() throws Exception {
+        CompletableFuture<?>[] results = new CompletableFuture[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            results[i] = dispatcher.submit(messages[i]);
+        }
+        CompletableFuture.allOf(results).get();
+    }
+}
@@ -0,0 +1,95 @@
+package com.youssef.spring.security.benchmark;
+
+import com.youssef.spring.security.SpringSecurityApplication;
+import com.youssef.spring.security.dto.RegisterRequest;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import com.youssef.spring.security.service.AuthService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registrations per second with 16 concurrent clients: {@link AuthService#register} inserts
+ * straight away and lets the unique constraints reject duplicates, the previous path ran two
+ * exists queries first. BCrypt runs at strength 4 so the database round trips dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Threads(16)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private AuthService authService;
+    private UserRepository userRepository;
+    private PasswordEncoder passwordEncoder;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        // Passed as arguments: default properties would lose to application.yml.
+        context = new SpringApplicationBuilder(SpringSecurityApplication.class)
+                .run("--server.port=0",
+                        "--app.security.password.strength=4",
+                        "--app.security.rate-limit.enabled=false",
+                        "--app.mail.outbox.poll-interval-ms=3600000",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        authService = context.getBean(AuthService.class);
+        userRepository = context.getBean(UserRepository.class);
+        passwordEncoder = context.getBean(PasswordEncoder.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void directInsert() {
+        String username = "direct" + sequence.incrementAndGet();
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setEmail(username + "@example.com");
+        request.setPassword("password");
+        authService.register(request);
+    }
+
+    @Benchmark
+    public void checkThenInsert() {
+        String username = "legacy" + sequence.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (userRepository.existsByUsername(username) || userRepository.existsByEmail(username + "@example.com")) {
+                throw new IllegalStateException("duplicate");
+            }
+            User user = new User();
+            user.setUsername(username);
+            user.setEmail(username + "@example.com");
+            user.setPassword(passwordEncoder.encode("password"));
+            userRepository.save(user);
+        });
+    }
+}
@@ -0,0 +1,224 @@
+package com.youssef.spring.security.benchmark;
+
+import com.youssef.spring.security.SpringSecurityApplication;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Starts the packaged application in each startup mode, one JVM per run, and measures the time from
+ * process start to the first successful {@code POST /api/auth/login}, then the resident set size
+ * after {@code idle} seconds without traffic. Needs the output of {@code ./mvnw -Pfast-startup package}:
+ * the thin jar with its AOT classes, {@code target/lib} and the {@code target/app.jsa} archive.
+ * <pre>
+ * ./mvnw -Pfast-startup verify -DskipTests -Dstartup.args="runs=5 label=$(git rev-parse --short HEAD)"
+ * </pre>
+ * Modes: {@code jit} (plain startup), {@code aot}, {@code aot-cds} and {@code aot-cds-lazy}. Arguments
+ * are {@code key=value}: {@code modes} (comma separated), {@code runs}, {@code idle} in seconds,
+ * {@code java}, {@code output} (default {@code target/startup-benchmark}) and {@code label}.
+ * Any {@code --spring.property=value} is passed to the app. Every run logs in against the same
+ * seeded H2 file database; RSS is read from {@code /proc}, so it is only reported on Linux.
+ */
+public class StartupBenchmark {
+
+    private static final String USERNAME = "startup";
+    private static final String PASSWORD = "startup-password";
+    // Pinned for the app too: calibrating would add to the startup being measured, and a different
+    // strength than the seeded hash would add a rehash to the first login.
+    private static final int BCRYPT_STRENGTH = 10;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+    private static final Map<String, Mode> MODES = new LinkedHashMap<>();
+
+    static {
+        MODES.put("jit", new Mode(List.of(), List.of()));
+        MODES.put("aot", new Mode(List.of("-Dspring.aot.enabled=true"), List.of()));
+        MODES.put("aot-cds", new Mode(List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=target/app.jsa"),
+                List.of()));
+        MODES.put("aot-cds-lazy", new Mode(List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=target/app.jsa"),
+                List.of("--spring.main.lazy-initialization=true")));
+    }
+
+    private record Mode(List<String> jvmArgs, List<String> appArgs) {
+    }
+
+    private record Run(String mode, int run, long firstLoginMillis, long rssKb) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appArgs.add(arg);
+            } else if (arg.contains("=")) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        List<String> modes = Arrays.asList(options.getOrDefault("modes", String.join(",", MODES.keySet())).split(","));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+        int idleSeconds = Integer.parseInt(options.getOrDefault("idle", "5"));
+        String java = options.getOrDefault("java", "java");
+        Path output = Path.of(options.getOrDefault("output", "target/startup-benchmark")).toAbsolutePath();
+        String label = options.getOrDefault("label", "local");
+
+        Path target = Path.of("target").toAbsolutePath();
+        Path jar = Files.list(target)
+                .filter(path -> path.getFileName().toString().matches("spring-security-.*\\.jar"))
+                .filter(path -> !path.getFileName().toString().endsWith("-exec.jar"))
+                .findFirst().orElseThrow(() -> new IllegalStateException("No thin jar in target, run ./mvnw -Pfast-startup package"));
+        // Same classpath string as the training run: the CDS archive is only used when it matches.
+        String classpath = jar + File.pathSeparator + target.resolve("lib") + File.separator + "*";
+        Files.createDirectories(output);
+        String databaseUrl = seedDatabase(output);
+
+        List<Run> results = new ArrayList<>();
+        for (String name : modes) {
+            Mode mode = MODES.get(name);
+            if (mode == null) {
+                throw new IllegalArgumentException("Unknown mode " + name + ", expected one of " + MODES.keySet());
+            }
+            for (int run = 1; run <= runs; run++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                for (String jvmArg : mode.jvmArgs()) {
+                    command.add(jvmArg.replace("target/", target + File.separator));
+                }
+                command.addAll(List.of("-cp", classpath, SpringSecurityApplication.class.getName()));
+                int port = freePort();
+                command.addAll(List.of("--server.port=" + port, "--spring.datasource.url=" + databaseUrl,
+                        "--spring.jpa.hibernate.ddl-auto=validate", "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN", "--app.security.password.strength=" + BCRYPT_STRENGTH));
+                command.addAll(mode.appArgs());
+                command.addAll(appArgs);
+                Run result = measure(name, run, command, port, idleSeconds, output.resolve(name + "-" + run + ".log"));
+                System.out.printf(Locale.ROOT, "%-14s run %d: first login %6d ms, idle RSS %s%n",
+                        name, run, result.firstLoginMillis(), rss(result.rssKb()));
+                results.add(result);
+            }
+        }
+        print(modes, results);
+        Path csv = output.resolve("startup-" + FILE_TIMESTAMP.format(Instant.now()) + ".csv");
+        StringBuilder lines = new StringBuilder("label,java,mode,run,first_login_ms,idle_rss_kb\n");
+        for (Run result : results) {
+            lines.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%d%n", label, Runtime.version(),
+                    result.mode(), result.run(), result.firstLoginMillis(), result.rssKb()));
+        }
+        Files.writeString(csv, lines);
+        System.out.println("wrote " + csv);
+    }
+
+    /**
+     * A file database with the Flyway schema and one enabled user, shared by every run.
+     */
+    private static String seedDatabase(Path output) throws IOException {
+        try (var files = Files.list(output)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().startsWith("users.")).toList()) {
+                Files.delete(file);
+            }
+        }
+        String url = "jdbc:h2:file:" + output.resolve("users");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "password");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        new JdbcTemplate(dataSource).update("INSERT INTO users (id, username, email, password, role, auth_provider, "
+                        + "enabled, token_version, failed_login_attempts, created_at) "
+                        + "VALUES (NEXT VALUE FOR users_seq, ?, ?, ?, 'USER', 'LOCAL', TRUE, 0, 0, CURRENT_TIMESTAMP)",
+                USERNAME, USERNAME + "@example.com", "{bcrypt}" + new BCryptPasswordEncoder(BCRYPT_STRENGTH).encode(PASSWORD));
+        return url;
+    }
+
+    private static Run measure(String mode, int run, List<String> command, int port, int idleSeconds, Path log)
+            throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest login = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() - start > STARTUP_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException(mode + " did not log in within " + STARTUP_TIMEOUT + ", see " + log);
+                }
+                try {
+                    if (client.send(login, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (ConnectException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            long firstLoginMillis = (System.nanoTime() - start) / 1_000_000;
+            Thread.sleep(idleSeconds * 1000L);
+            return new Run(mode, run, firstLoginMillis, rssKb(process.pid()));
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    // VmRSS from /proc/<pid>/status, -1 where there is no /proc.
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(List<String> modes, List<Run> results) {
+        System.out.printf(Locale.ROOT, "%n%-14s %16s %16s %14s%n", "mode", "first login p50", "first login min", "idle RSS p50");
+        for (String mode : modes) {
+            long[] logins = results.stream().filter(r -> r.mode().equals(mode)).mapToLong(Run::firstLoginMillis).sorted().toArray();
+            long[] rss = results.stream().filter(r -> r.mode().equals(mode)).mapToLong(Run::rssKb).sorted().toArray();
+            System.out.printf(Locale.ROOT, "%-14s %13d ms %13d ms %14s%n",
+                    mode, logins[logins.length / 2], logins[0], rss(rss[rss.length / 2]));
+        }
+    }
+
+    private static String rss(long kb) {
+        return kb < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f MB", kb / 1024.0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.youssef.spring.security.benchmark;
+
+import com.youssef.spring.security.service.InMemoryTokenRevocationStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load on the revocation denylist: every authenticated request calls {@code isRevoked}, while
+ * logouts keep adding ids. Lookup cost should not depend on how many ids are revoked.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenRevocationStoreBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int revoked;
+
+    private InMemoryTokenRevocationStore store;
+    private String[] revokedIds;
+    private String[] activeIds;
+    private Instant logoutExpiry;
+
+    @Setup
+    public void setUp() {
+        store = new InMemoryTokenRevocationStore(60, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+        revokedIds = new String[1024];
+        activeIds = new String[1024];
+        for (int i = 0; i < revoked; i++) {
+            String id = UUID.randomUUID().toString();
+            // Spread expiries over the 24 h token lifetime, as real logouts would be.
+            store.revoke(id, Instant.ofEpochMilli(now + 60_000 + ThreadLocalRandom.current().nextLong(86_400_000)));
+            if (i < revokedIds.length) {
+                revokedIds[i] = id;
+            }
+        }
+        logoutExpiry = Instant.ofEpochMilli(now + 3_600_000);
+        for (int i = 0; i < activeIds.length; i++) {
+            activeIds[i] = UUID.randomUUID().toString();
+            if (revokedIds[i] == null) {
+                revokedIds[i] = revokedIds[i % revoked];
+            }
+        }
+    }
+
+    /** The common case: a request with a token nobody logged out. */
+    @Benchmark
+    public boolean isRevokedMiss() {
+        return store.isRevoked(activeIds[ThreadLocalRandom.current().nextInt(activeIds.length)]);
+    }
+
+    @Benchmark
+    public boolean isRevokedHit() {
+        return store.isRevoked(revokedIds[ThreadLocalRandom.current().nextInt(revokedIds.length)]);
+    }
+
+    /** Logouts of a fixed pool of tokens, so the store does not grow across iterations. */
+    @Benchmark
+    public void revoke() {
+        store.revoke(activeIds[ThreadLocalRandom.current().nextInt(activeIds.length)], logoutExpiry);
+    }
+}
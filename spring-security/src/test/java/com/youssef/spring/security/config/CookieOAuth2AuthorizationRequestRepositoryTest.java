@@ -0,0 +1,81 @@
+package com.youssef.spring.security.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CookieOAuth2AuthorizationRequestRepositoryTest {
+
+    private static final String SECRET = "mySecretKey12345678901234567890123456789012345678901234567890";
+
+    private final CookieOAuth2AuthorizationRequestRepository repository =
+            new CookieOAuth2AuthorizationRequestRepository(SECRET, 180, true);
+
+    @Test
+    void roundTripsTheRequestWithoutASession() {
+        OAuth2AuthorizationRequest original = authorizationRequest();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        repository.saveAuthorizationRequest(original, request, response);
+        String header = response.getHeader("Set-Cookie");
+        OAuth2AuthorizationRequest loaded = repository.loadAuthorizationRequest(callback(cookieValue(header), "state-1"));
+
+        assertNull(request.getSession(false));
+        assertTrue(header.contains("HttpOnly") && header.contains("Secure") && header.contains("SameSite=Lax"), header);
+        assertEquals(original.getState(), loaded.getState());
+        assertEquals(original.getRedirectUri(), loaded.getRedirectUri());
+        assertEquals(original.getScopes(), loaded.getScopes());
+        assertEquals(original.getAttributes(), loaded.getAttributes());
+        assertEquals(original.getAuthorizationRequestUri(), loaded.getAuthorizationRequestUri());
+    }
+
+    @Test
+    void rejectsTamperedForeignExpiredOrMismatchedCookies() {
+        String value = repository.encode(authorizationRequest());
+        char flipped = value.charAt(40) == 'A' ? 'B' : 'A';
+        String tampered = value.substring(0, 40) + flipped + value.substring(41);
+        String foreign = new CookieOAuth2AuthorizationRequestRepository("another-" + SECRET, 180, true)
+                .encode(authorizationRequest());
+        String expired = new CookieOAuth2AuthorizationRequestRepository(SECRET, -1, true)
+                .encode(authorizationRequest());
+
+        assertNull(repository.loadAuthorizationRequest(callback(tampered, "state-1")));
+        assertNull(repository.loadAuthorizationRequest(callback(foreign, "state-1")));
+        assertNull(repository.loadAuthorizationRequest(callback(expired, "state-1")));
+        assertNull(repository.loadAuthorizationRequest(callback(value, "state-2")));
+        assertNull(repository.loadAuthorizationRequest(callback("not-a-cookie", "state-1")));
+    }
+
+    private static OAuth2AuthorizationRequest authorizationRequest() {
+        return OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri("https://accounts.google.com/o/oauth2/v2/auth")
+                .clientId("client")
+                .redirectUri("https://cluster.test/login/oauth2/code/google")
+                .scopes(Set.of("email", "profile"))
+                .state("state-1")
+                .additionalParameters(Map.of("code_challenge", "challenge", "code_challenge_method", "S256"))
+                .attributes(Map.of("registration_id", "google", "code_verifier", "verifier"))
+                .build();
+    }
+
+    private static MockHttpServletRequest callback(String cookieValue, String state) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/login/oauth2/code/google");
+        request.setParameter("state", state);
+        request.setCookies(new Cookie(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME, cookieValue));
+        return request;
+    }
+
+    private static String cookieValue(String header) {
+        return header.substring(header.indexOf('=') + 1, header.indexOf(';'));
+    }
+}
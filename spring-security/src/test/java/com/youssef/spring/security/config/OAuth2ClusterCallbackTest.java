@@ -0,0 +1,147 @@
+package com.youssef.spring.security.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.youssef.spring.security.SpringSecurityApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two instances behind the same public host: the login starts on one node and the provider's
+ * callback lands on the other, with nothing shared but the cookie and the database.
+ */
+class OAuth2ClusterCallbackTest {
+
+    private static final String PUBLIC_HOST = "cluster.test";
+
+    private static HttpServer provider;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        provider = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        provider.createContext("/token", exchange -> json(exchange,
+                "{\"access_token\":\"provider-access-token\",\"token_type\":\"Bearer\",\"expires_in\":3600}"));
+        provider.createContext("/userinfo", exchange -> json(exchange,
+                "{\"sub\":\"cluster-account\",\"email\":\"cluster@example.com\"}"));
+        provider.start();
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        nodeB.close();
+        nodeA.close();
+        provider.stop(0);
+    }
+
+    @Test
+    void callbackOnAnotherNodeCompletesTheLogin() throws Exception {
+        HttpResponse<String> authorize = get(nodeA, "/oauth2/authorization/google", null);
+
+        assertEquals(302, authorize.statusCode());
+        String location = authorize.headers().firstValue("Location").orElseThrow();
+        var parameters = UriComponentsBuilder.fromUriString(location).build().getQueryParams();
+        assertEquals("https://" + PUBLIC_HOST + "/login/oauth2/code/google", decode(parameters.getFirst("redirect_uri")));
+        String cookie = authorizationCookie(authorize);
+        assertNotNull(cookie);
+        assertNoSession(authorize);
+
+        HttpResponse<String> callback = get(nodeB, "/login/oauth2/code/google?code=provider-code&state="
+                + parameters.getFirst("state"), cookie);
+
+        assertEquals(302, callback.statusCode());
+        String target = callback.headers().firstValue("Location").orElseThrow();
+        assertTrue(target.startsWith("http://frontend.test/oauth2/redirect?token="), target);
+        assertTrue(callback.headers().allValues("Set-Cookie").stream()
+                .anyMatch(header -> header.startsWith(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME + "=;")
+                        && header.contains("Max-Age=0")));
+        assertNoSession(callback);
+    }
+
+    @Test
+    void callbackWithoutTheCookieIsRejected() throws Exception {
+        HttpResponse<String> authorize = get(nodeA, "/oauth2/authorization/google", null);
+        String state = UriComponentsBuilder.fromUriString(authorize.headers().firstValue("Location").orElseThrow())
+                .build().getQueryParams().getFirst("state");
+
+        HttpResponse<String> callback = get(nodeB, "/login/oauth2/code/google?code=provider-code&state=" + state, null);
+
+        assertEquals(302, callback.statusCode());
+        assertTrue(callback.headers().firstValue("Location").orElseThrow().endsWith("/login?error"));
+        assertNoSession(callback);
+    }
+
+    private HttpResponse<String> get(ConfigurableApplicationContext node, String path, String cookie) throws Exception {
+        String port = node.getEnvironment().getProperty("local.server.port");
+        // What the load balancer in front of both nodes would add.
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("X-Forwarded-Proto", "https")
+                .header("X-Forwarded-Host", PUBLIC_HOST)
+                .header("X-Forwarded-Port", "443");
+        if (cookie != null) {
+            request.header("Cookie", cookie);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String authorizationCookie(HttpResponse<String> response) {
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(header -> header.startsWith(CookieOAuth2AuthorizationRequestRepository.COOKIE_NAME + "="))
+                .map(header -> header.substring(0, header.indexOf(';')))
+                .findFirst().orElse(null);
+    }
+
+    private static void assertNoSession(HttpResponse<String> response) {
+        List<String> cookies = response.headers().allValues("Set-Cookie");
+        assertFalse(cookies.stream().anyMatch(header -> header.startsWith("JSESSIONID")), cookies.toString());
+    }
+
+    private static String decode(String value) {
+        return java.net.URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        String providerUrl = "http://localhost:" + provider.getAddress().getPort();
+        return new SpringApplicationBuilder(SpringSecurityApplication.class).run(
+                "--server.port=0",
+                "--server.forward-headers-strategy=framework",
+                "--spring.datasource.url=jdbc:h2:mem:oauth2-cluster",
+                "--spring.security.oauth2.client.provider.google.authorization-uri=" + providerUrl + "/authorize",
+                "--spring.security.oauth2.client.provider.google.token-uri=" + providerUrl + "/token",
+                "--spring.security.oauth2.client.provider.google.user-info-uri=" + providerUrl + "/userinfo",
+                "--spring.security.oauth2.client.provider.google.user-name-attribute=sub",
+                "--app.frontend.url=http://frontend.test");
+    }
+
+    private static void json(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.youssef.spring.security.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffloadingPasswordEncoderTest {
+
+    @Test
+    void shedsWorkOnceThePoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(new BlockingEncoder(release),
+                1, 1, 5000, meterRegistry);
+
+        // One running, one queued: the pool is now saturated.
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        waitForQueueDepth(meterRegistry, 1);
+
+        assertThrows(PasswordHashingOverloadedException.class, () -> encoder.encode("c"));
+        assertEquals(1.0, meterRegistry.get("auth.password.rejected").counter().count());
+
+        release.countDown();
+        assertEquals("encoded-a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("encoded-b", queued.get(5, TimeUnit.SECONDS));
+        encoder.shutdown();
+    }
+
+    private static void waitForQueueDepth(SimpleMeterRegistry meterRegistry, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("auth.password.queue.depth").gauge().value() < depth
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private record BlockingEncoder(CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "encoded-" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.youssef.spring.security.config;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Spring Boot tests replace metrics exporters with a simple registry unless asked otherwise.
+@AutoConfigureObservability(tracing = false)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"app.security.password.strength=4", "app.metrics.scrape.password=scrape-password"})
+class PrometheusEndpointTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void scrapesAuthenticationStageHistogramsWithTheScrapeCredentials() {
+        User user = new User();
+        user.setUsername("metrics");
+        user.setEmail("metrics@example.com");
+        user.setPassword(passwordEncoder.encode("password"));
+        user.setEnabled(true);
+        userRepository.save(user);
+        ResponseEntity<String> login = restTemplate.postForEntity("/api/auth/login",
+                Map.of("username", "metrics", "password", "password"), String.class);
+        assertEquals(HttpStatus.OK, login.getStatusCode());
+
+        ResponseEntity<String> scrape = restTemplate.withBasicAuth("prometheus", "scrape-password")
+                .getForEntity("/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        String body = scrape.getBody();
+        for (String histogram : new String[]{"auth_login_seconds_bucket{outcome=\"success\"",
+                "auth_jwt_sign_seconds_bucket", "auth_password_hash_seconds_bucket{operation=\"match\"",
+                "auth_user_lookup_seconds_bucket{by=\"username\""}) {
+            assertTrue(body.contains(histogram), histogram);
+        }
+        assertTrue(body.contains("auth_jwt_verify_failures_total{reason=\"expired\""));
+        // Reachable without credentials; UP or DOWN depends on the SMTP server, not on this test.
+        assertTrue(restTemplate.getForEntity("/actuator/health", String.class).getBody().startsWith("{\"status\""));
+    }
+
+    @Test
+    void refusesAnonymousAndWrongScrapes() {
+        assertEquals(HttpStatus.UNAUTHORIZED, restTemplate.getForEntity("/actuator/prometheus", String.class).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, restTemplate.getForEntity("/actuator/metrics", String.class).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, restTemplate.withBasicAuth("prometheus", "wrong")
+                .getForEntity("/actuator/prometheus", String.class).getStatusCode());
+    }
+}
@@ -0,0 +1,164 @@
+package com.youssef.spring.security.config;
+
+import com.youssef.spring.security.dto.AuthRequest;
+import com.youssef.spring.security.entity.AuthProvider;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import com.youssef.spring.security.service.AuthService;
+import com.youssef.spring.security.service.FederatedUserService;
+import com.youssef.spring.security.service.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two H2 databases stand in for the primary and its replica. "Replication" is a one-off copy of
+ * the primary, after which the replica's copy of the row is changed, so each read shows which
+ * database answered it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "app.datasource.replica.enabled=true",
+        "app.datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.replica.lag-query=SELECT lag_seconds FROM replica_lag",
+        "app.datasource.replica.max-lag-ms=1000",
+        "app.datasource.replica.lag-check-ms=3600000",
+        "app.security.password.strength=4",
+        "app.security.rate-limit.enabled=false"
+})
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private FederatedUserService federatedUserService;
+
+    @Test
+    void readOnlyLookupsGoToTheReplicaUntilItLags() {
+        User user = new User();
+        user.setUsername("routed");
+        user.setEmail("routed@primary.test");
+        user.setPassword("password");
+        Long id = userRepository.save(user).getId();
+        JdbcTemplate replica = replicate(0.2);
+        replica.update("UPDATE users SET email = 'routed@replica.test' WHERE username = 'routed'");
+
+        assertEquals("routed@replica.test", email(id));
+        assertEquals("routed@primary.test", new TransactionTemplate(transactionManager)
+                .execute(status -> userRepository.findById(id).orElseThrow().getEmail()));
+        clearCaches();
+        assertEquals("routed@primary.test", userRepository.findByUsername("routed").orElseThrow().getEmail());
+
+        replica.update("UPDATE replica_lag SET lag_seconds = 30");
+        replicaLagMonitor.check();
+
+        assertEquals("routed@primary.test", email(id));
+        assertEquals(30.0, meterRegistry.get("db.replica.lag").gauge().value());
+        assertTrue(routed("replica", "read-only") >= 1);
+        assertTrue(routed("primary", "replica-lag") >= 1);
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primary").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica").gauge());
+    }
+
+    @Test
+    void lockoutHoldsWhileTheReplicaStillHasTheUnlockedRow() {
+        User user = new User();
+        user.setUsername("lagging");
+        user.setEmail("lagging@primary.test");
+        user.setPassword(passwordEncoder.encode("right-password"));
+        user.setEnabled(true);
+        userRepository.save(user);
+        // The replica keeps the row as it was before the lock, within max-lag-ms so it stays in use.
+        replicate(0.2);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(BadCredentialsException.class, () -> authService.login(login("wrong-password")));
+        }
+
+        assertThrows(RateLimitExceededException.class, () -> authService.login(login("right-password")));
+    }
+
+    @Test
+    void returningFederatedLoginsReadTheUserFromThePrimary() {
+        Long id = federatedUserService.provision(AuthProvider.GITHUB, "routed-1", "octo@primary.test").getId();
+        JdbcTemplate replica = replicate(0.2);
+        replica.update("UPDATE users SET email = 'octo@replica.test' WHERE id = ?", id);
+
+        User again = federatedUserService.provision(AuthProvider.GITHUB, "routed-1", "octo@primary.test");
+
+        assertEquals(id, again.getId());
+        assertEquals("octo@primary.test", again.getEmail());
+    }
+
+    private static AuthRequest login(String password) {
+        AuthRequest request = new AuthRequest();
+        request.setUsername("lagging");
+        request.setPassword(password);
+        return request;
+    }
+
+    // A one-off copy of the primary, replacing whatever an earlier test copied.
+    private JdbcTemplate replicate(double lagSeconds) {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "password"));
+        replica.execute("DROP ALL OBJECTS");
+        new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class).forEach(replica::execute);
+        replica.execute("CREATE TABLE replica_lag (lag_seconds DOUBLE)");
+        replica.update("INSERT INTO replica_lag VALUES (?)", lagSeconds);
+        replicaLagMonitor.check();
+        return replica;
+    }
+
+    private String email(Long id) {
+        return userRepository.findById(id).orElseThrow().getEmail();
+    }
+
+    // Outside any transaction: the cache manager defers a clear made inside one until commit.
+    private void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    private double routed(String target, String reason) {
+        return meterRegistry.get("db.routing").tag("target", target).tag("reason", reason).counter().count();
+    }
+}
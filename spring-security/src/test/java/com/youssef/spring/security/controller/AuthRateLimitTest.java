@@ -0,0 +1,69 @@
+package com.youssef.spring.security.controller;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "app.security.password.strength=4",
+        "app.security.lockout.max-attempts=3",
+        "app.security.rate-limit.client.capacity=6",
+        "app.security.rate-limit.client.refill-ms=3600000"
+})
+class AuthRateLimitTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    // One test: every request below comes from the same address and shares its bucket.
+    @Test
+    void locksTheAccountAfterFailedLoginsThenThrottlesTheClient() {
+        User user = new User();
+        user.setUsername("throttled");
+        user.setEmail("throttled@example.com");
+        user.setPassword(passwordEncoder.encode("password"));
+        user.setEnabled(true);
+        userRepository.save(user);
+
+        for (int i = 0; i < 3; i++) {
+            assertFalse(login("wrong").getStatusCode().is2xxSuccessful());
+        }
+        assertFalse(userRepository.findById(user.getId()).orElseThrow().isAccountNonLocked());
+
+        ResponseEntity<String> locked = login("password");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, locked.getStatusCode());
+        assertTrue(locked.getBody().contains("locked"));
+        assertTrue(Long.parseLong(locked.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) > 0);
+
+        login("password");
+        login("password");
+        ResponseEntity<String> throttled = login("password");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, throttled.getStatusCode());
+        assertTrue(throttled.getBody().contains("Too many requests"));
+        assertTrue(Long.parseLong(throttled.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) > 0);
+    }
+
+    private ResponseEntity<String> login(String password) {
+        return restTemplate.postForEntity("/api/auth/login",
+                Map.of("username", "throttled", "password", password), String.class);
+    }
+}
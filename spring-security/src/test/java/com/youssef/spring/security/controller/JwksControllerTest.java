@@ -0,0 +1,96 @@
+package com.youssef.spring.security.controller;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"app.security.password.strength=4", "app.jwt.algorithm=ES256"})
+class JwksControllerTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void publishesCacheableKeysThatVerifyIssuedTokens() {
+        User user = new User();
+        user.setUsername("jwks");
+        user.setEmail("jwks@example.com");
+        user.setPassword(passwordEncoder.encode("password"));
+        user.setEnabled(true);
+        userRepository.save(user);
+        Map<?, ?> login = restTemplate.postForObject("/api/auth/login",
+                Map.of("username", "jwks", "password", "password"), Map.class);
+        String token = (String) login.get("token");
+
+        ResponseEntity<Map> response = restTemplate.getForEntity("/.well-known/jwks.json", Map.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("max-age=300, public", response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+        List<?> keys = (List<?>) response.getBody().get("keys");
+        assertEquals(2, keys.size());
+        // What a downstream service does: pick the key by kid from its cached copy of the set.
+        String subject = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return keys.stream().map(k -> (Map<?, ?>) k)
+                                .filter(k -> header.getKeyId().equals(k.get("kid")))
+                                .map(JwksControllerTest::ecPublicKey)
+                                .findFirst()
+                                .orElseThrow(() -> new SignatureException("Unknown kid"));
+                    }
+                })
+                .build()
+                .parseClaimsJws(token).getBody().getSubject();
+        assertEquals("jwks", subject);
+    }
+
+    private static Key ecPublicKey(Map<?, ?> jwk) {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            ECPoint point = new ECPoint(unsigned(jwk.get("x")), unsigned(jwk.get("y")));
+            return KeyFactory.getInstance("EC").generatePublic(
+                    new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static BigInteger unsigned(Object base64url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64url.toString()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.youssef.spring.security.controller;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"app.security.password.strength=4", "app.jwt.cache.enabled=true"})
+class LogoutTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void loggedOutTokenNoLongerAuthenticatesButOtherSessionsDo() {
+        User user = new User();
+        user.setUsername("logout");
+        user.setEmail("logout@example.com");
+        user.setPassword(passwordEncoder.encode("password"));
+        user.setEnabled(true);
+        userRepository.save(user);
+        String token = login();
+        String otherToken = login();
+        assertTrue(isProfile(profile(token)));
+
+        ResponseEntity<String> logout = restTemplate.exchange("/api/auth/logout", HttpMethod.POST,
+                new HttpEntity<>(bearer(token)), String.class);
+
+        assertEquals(HttpStatus.OK, logout.getStatusCode());
+        assertFalse(isProfile(profile(token)));
+        assertTrue(isProfile(profile(otherToken)));
+    }
+
+    private String login() {
+        Map<?, ?> response = restTemplate.postForObject("/api/auth/login",
+                Map.of("username", "logout", "password", "password"), Map.class);
+        return (String) response.get("token");
+    }
+
+    private ResponseEntity<String> profile(String token) {
+        return restTemplate.exchange("/api/user/profile", HttpMethod.GET, new HttpEntity<>(bearer(token)), String.class);
+    }
+
+    // Anonymous requests are redirected to the OAuth2 login page, which also answers 200.
+    private static boolean isProfile(ResponseEntity<String> response) {
+        return response.getStatusCode() == HttpStatus.OK && response.getBody().contains("\"username\":\"logout\"");
+    }
+
+    private static HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+}
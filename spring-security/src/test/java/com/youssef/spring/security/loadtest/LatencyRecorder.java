@@ -0,0 +1,81 @@
+package com.youssef.spring.security.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects per-request latencies for one endpoint. Each worker thread records into its own
+ * buffer, so recording never contends; buffers are merged once the run is over.
+ */
+class LatencyRecorder {
+
+    private final String endpoint;
+    private final ThreadLocal<Buffer> buffers;
+    private final List<Buffer> allBuffers = new CopyOnWriteArrayList<>();
+    private final AtomicLong errors = new AtomicLong();
+
+    LatencyRecorder(String endpoint) {
+        this.endpoint = endpoint;
+        this.buffers = ThreadLocal.withInitial(() -> {
+            Buffer buffer = new Buffer();
+            allBuffers.add(buffer);
+            return buffer;
+        });
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    void record(long latencyNanos, boolean success) {
+        buffers.get().add(latencyNanos);
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    Summary summarize(double durationSeconds) {
+        int count = allBuffers.stream().mapToInt(buffer -> buffer.size).sum();
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (Buffer buffer : allBuffers) {
+            System.arraycopy(buffer.values, 0, latencies, offset, buffer.size);
+            offset += buffer.size;
+        }
+        Arrays.sort(latencies);
+        return new Summary(endpoint, count, errors.get(), count / durationSeconds,
+                percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.95),
+                percentileMillis(latencies, 0.99), percentileMillis(latencies, 1.0));
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    record Summary(String endpoint, long requests, long errors, double throughput,
+                   double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+
+    private static final class Buffer {
+
+        private long[] values = new long[4096];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.youssef.spring.security.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes one run as {@code <scenario>-<threads>-<timestamp>.json} and {@code .csv}. Both carry the
+ * {@code label} (a commit id, a branch name) so runs of different builds can be lined up.
+ */
+class LoadTestReport {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+    private final Map<String, Object> run = new LinkedHashMap<>();
+    private final List<LatencyRecorder.Summary> summaries;
+    private final Instant startedAt;
+
+    LoadTestReport(String label, String scenario, String threads, int concurrency, int durationSeconds,
+                   long startupMillis, Instant startedAt, List<LatencyRecorder.Summary> summaries) {
+        run.put("label", label);
+        run.put("scenario", scenario);
+        run.put("threads", threads);
+        run.put("java", Runtime.version().toString());
+        run.put("cpus", Runtime.getRuntime().availableProcessors());
+        run.put("concurrency", concurrency);
+        run.put("durationSeconds", durationSeconds);
+        run.put("startupMillis", startupMillis);
+        run.put("startedAt", startedAt.toString());
+        this.startedAt = startedAt;
+        this.summaries = summaries;
+    }
+
+    List<Path> write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        String name = run.get("scenario") + "-" + run.get("threads") + "-" + FILE_TIMESTAMP.format(startedAt);
+        Path json = directory.resolve(name + ".json");
+        Path csv = directory.resolve(name + ".csv");
+
+        Map<String, Object> document = new LinkedHashMap<>(run);
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        for (LatencyRecorder.Summary summary : summaries) {
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("endpoint", summary.endpoint());
+            endpoint.put("requests", summary.requests());
+            endpoint.put("errors", summary.errors());
+            endpoint.put("errorRate", summary.errorRate());
+            endpoint.put("throughput", summary.throughput());
+            endpoint.put("p50Millis", summary.p50Millis());
+            endpoint.put("p95Millis", summary.p95Millis());
+            endpoint.put("p99Millis", summary.p99Millis());
+            endpoint.put("maxMillis", summary.maxMillis());
+            endpoints.add(endpoint);
+        }
+        document.put("endpoints", endpoints);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), document);
+
+        StringBuilder lines = new StringBuilder(
+                "label,scenario,threads,concurrency,startup_ms,endpoint,requests,errors,error_rate,throughput,p50_ms,p95_ms,p99_ms,max_ms\n");
+        for (LatencyRecorder.Summary summary : summaries) {
+            lines.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,\"%s\",%d,%d,%.4f,%.2f,%.3f,%.3f,%.3f,%.3f%n",
+                    run.get("label"), run.get("scenario"), run.get("threads"), (Integer) run.get("concurrency"),
+                    (Long) run.get("startupMillis"),
+                    summary.endpoint(), summary.requests(), summary.errors(), summary.errorRate(),
+                    summary.throughput(), summary.p50Millis(), summary.p95Millis(), summary.p99Millis(),
+                    summary.maxMillis()));
+        }
+        Files.writeString(csv, lines);
+        return List.of(json, csv);
+    }
+}
@@ -0,0 +1,314 @@
+package com.youssef.spring.security.loadtest;
+
+import com.youssef.spring.security.SpringSecurityApplication;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Boots the application on a random port, with its mail going to a local {@link SmtpStandIn}, and
+ * drives it over HTTP with a fixed number of concurrent clients, then prints throughput, latency
+ * percentiles and errors per endpoint and saves them with {@link LoadTestReport}. Two scenarios:
+ * <ul>
+ *     <li>{@code mixed}: one seeded user logs in ({@code login-ratio}) or reads its profile;</li>
+ *     <li>{@code journey}: each iteration registers a new user, waits for the verification email,
+ *     follows its link, logs in and reads the profile {@code profile-reads} times.</li>
+ * </ul>
+ * <pre>
+ * ./mvnw -Pload-test verify -DskipTests -Dload.args="scenario=journey concurrency=50 label=$(git rev-parse --short HEAD)"
+ * ./mvnw -Pload-test verify -DskipTests -Dload.java=$JAVA21_HOME/bin/java -Dload.args="threads=virtual concurrency=400"
+ * </pre>
+ * Arguments are {@code key=value}: {@code scenario} (mixed|journey), {@code threads} (platform|virtual),
+ * {@code concurrency}, {@code warmup} and {@code duration} in seconds, {@code login-ratio},
+ * {@code profile-reads}, {@code output} (directory, default {@code target/load-test}) and
+ * {@code label}. Any {@code --spring.property=value} is passed to the app, e.g. {@code --spring.profiles.active=prod}
+ * to compare the production settings; the default run turns {@code show-sql} off, pass
+ * {@code --spring.jpa.show-sql=true} to measure the development settings as they ship.
+ */
+public class LoadTestRunner {
+
+    private static final String USERNAME = "loadtest";
+    private static final String PASSWORD = "loadtest-password";
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final long MAIL_TIMEOUT_SECONDS = 30;
+    // Usernames are at most 20 characters: "lt" + run tag + "-" + journey number.
+    private static final String RUN_TAG = Long.toString(System.currentTimeMillis() % 1_679_616, 36);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appArgs.add(arg);
+            } else if (arg.contains("=")) {
+                options.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        boolean virtual = "virtual".equals(options.getOrDefault("threads", "platform"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "20"));
+        double loginRatio = Double.parseDouble(options.getOrDefault("login-ratio", "0.1"));
+        int profileReads = Integer.parseInt(options.getOrDefault("profile-reads", "5"));
+        boolean journey = "journey".equals(options.getOrDefault("scenario", "mixed"));
+        Path output = Path.of(options.getOrDefault("output", "target/load-test"));
+        String label = options.getOrDefault("label", "local");
+
+        try (SmtpStandIn smtp = new SmtpStandIn()) {
+            // Passed as arguments: default properties would lose to application.yml.
+            Map<String, String> overrides = new LinkedHashMap<>();
+            overrides.put("server.port", "0");
+            overrides.put("app.threads.virtual", String.valueOf(virtual));
+            overrides.put("spring.jpa.show-sql", "false");
+            overrides.put("app.security.rate-limit.enabled", "false");
+            overrides.put("app.security.password.strength", "10"); // as in application.yml, not the test override
+            overrides.put("spring.mail.host", "127.0.0.1");
+            overrides.put("spring.mail.port", String.valueOf(smtp.port()));
+            overrides.put("spring.mail.properties.mail.smtp.starttls.enable", "false");
+            overrides.put("app.mail.outbox.poll-interval-ms", "1000"); // the test config/application.yml turns it off
+            overrides.put("logging.level.root", "WARN");
+            for (String arg : appArgs) {
+                overrides.remove(arg.substring(2, arg.contains("=") ? arg.indexOf('=') : arg.length()));
+            }
+            overrides.forEach((key, value) -> appArgs.add("--" + key + "=" + value));
+            long bootStart = System.nanoTime();
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringSecurityApplication.class)
+                    .run(appArgs.toArray(new String[0]));
+            long startupMillis = (System.nanoTime() - bootStart) / 1_000_000;
+            try {
+                seedUser(context);
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                LoadTestRunner runner = new LoadTestRunner(URI.create("http://localhost:" + port), concurrency, smtp);
+
+                String scenario = journey ? "journey" : "mixed";
+                String threads = virtual ? "virtual" : "platform";
+                System.out.printf(Locale.ROOT, "scenario=%s threads=%s java=%s concurrency=%d profiles=%s startup=%dms%n",
+                        scenario, threads, Runtime.version(), concurrency,
+                        String.join(",", context.getEnvironment().getActiveProfiles()), startupMillis);
+                Instant startedAt;
+                List<LatencyRecorder.Summary> summaries;
+                if (journey) {
+                    runner.runJourneys(warmupSeconds, profileReads);
+                    startedAt = Instant.now();
+                    summaries = runner.runJourneys(durationSeconds, profileReads);
+                } else {
+                    runner.run(warmupSeconds, loginRatio);
+                    startedAt = Instant.now();
+                    summaries = runner.run(durationSeconds, loginRatio);
+                }
+                print(summaries);
+                for (Path file : new LoadTestReport(label, scenario, threads, concurrency, durationSeconds,
+                        startupMillis, startedAt, summaries).write(output)) {
+                    System.out.println("wrote " + file.toAbsolutePath());
+                }
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static void seedUser(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        if (userRepository.existsByUsername(USERNAME)) {
+            return;
+        }
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setEmail(USERNAME + "@example.com");
+        user.setPassword(context.getBean(PasswordEncoder.class).encode(PASSWORD));
+        user.setEnabled(true);
+        userRepository.save(user);
+    }
+
+    private final URI baseUri;
+    private final int concurrency;
+    private final SmtpStandIn smtp;
+    private final HttpClient client;
+    private final AtomicLong journeys = new AtomicLong();
+
+    LoadTestRunner(URI baseUri, int concurrency, SmtpStandIn smtp) {
+        this.baseUri = baseUri;
+        this.concurrency = concurrency;
+        this.smtp = smtp;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Runs {@code concurrency} closed-loop clients for {@code seconds}: each one sends its next
+     * request as soon as the previous answer arrived.
+     */
+    List<LatencyRecorder.Summary> run(int seconds, double loginRatio) throws Exception {
+        String token = login(new LatencyRecorder("seed"), USERNAME);
+        LatencyRecorder logins = new LatencyRecorder("POST /api/auth/login");
+        LatencyRecorder profiles = new LatencyRecorder("GET /api/user/profile");
+
+        runClients(seconds, () -> {
+            if (ThreadLocalRandom.current().nextDouble() < loginRatio) {
+                login(logins, USERNAME);
+            } else {
+                profile(profiles, token);
+            }
+        });
+        return List.of(logins.summarize(seconds), profiles.summarize(seconds));
+    }
+
+    /**
+     * Each client repeats register, verification email, verify-email, login and profile reads,
+     * with a new user every time. A step that fails ends the iteration; the mail row is the time
+     * from the register answer until the link reached the stand-in.
+     */
+    List<LatencyRecorder.Summary> runJourneys(int seconds, int profileReads) throws Exception {
+        LatencyRecorder registrations = new LatencyRecorder("POST /api/auth/register");
+        LatencyRecorder mails = new LatencyRecorder("mail: verification link");
+        LatencyRecorder verifications = new LatencyRecorder("GET /api/auth/verify-email");
+        LatencyRecorder logins = new LatencyRecorder("POST /api/auth/login");
+        LatencyRecorder profiles = new LatencyRecorder("GET /api/user/profile");
+
+        runClients(seconds, () -> {
+            String username = "lt" + RUN_TAG + "-" + Long.toString(journeys.incrementAndGet(), 36);
+            String email = username + "@load.test";
+            if (!register(registrations, username, email)) {
+                return;
+            }
+            String verificationToken = awaitVerificationToken(mails, email);
+            if (verificationToken == null || !verify(verifications, verificationToken)) {
+                return;
+            }
+            String token = login(logins, username);
+            if (token == null) {
+                return;
+            }
+            for (int i = 0; i < profileReads; i++) {
+                profile(profiles, token);
+            }
+        });
+        return List.of(registrations.summarize(seconds), mails.summarize(seconds),
+                verifications.summarize(seconds), logins.summarize(seconds), profiles.summarize(seconds));
+    }
+
+    private void runClients(int seconds, Runnable iteration) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread client = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        iteration.run();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            client.setDaemon(true);
+            client.start();
+        }
+        done.await();
+    }
+
+    private boolean register(LatencyRecorder recorder, String username, String email) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + username + "\",\"email\":\""
+                        + email + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build();
+        return send(request, recorder) != null;
+    }
+
+    private String awaitVerificationToken(LatencyRecorder recorder, String email) {
+        long start = System.nanoTime();
+        try {
+            String token = smtp.verificationToken(email).get(MAIL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            recorder.record(System.nanoTime() - start, true);
+            return token;
+        } catch (Exception e) {
+            recorder.record(System.nanoTime() - start, false);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+
+    private boolean verify(LatencyRecorder recorder, String verificationToken) {
+        return send(HttpRequest.newBuilder(baseUri.resolve("/api/auth/verify-email?token="
+                        + URLEncoder.encode(verificationToken, StandardCharsets.UTF_8)))
+                .GET()
+                .build(), recorder) != null;
+    }
+
+    private String login(LatencyRecorder recorder, String username) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build();
+        String body = send(request, recorder);
+        Matcher matcher = TOKEN.matcher(body == null ? "" : body);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private void profile(LatencyRecorder recorder, String token) {
+        send(HttpRequest.newBuilder(baseUri.resolve("/api/user/profile"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build(), recorder);
+    }
+
+    /**
+     * Returns the body of a 200 answer, {@code null} for anything else.
+     */
+    private String send(HttpRequest request, LatencyRecorder recorder) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean success = response.statusCode() == 200;
+            recorder.record(System.nanoTime() - start, success);
+            return success ? response.body() : null;
+        } catch (Exception e) {
+            recorder.record(System.nanoTime() - start, false);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }
+    }
+
+    private static void print(List<LatencyRecorder.Summary> summaries) {
+        System.out.printf(Locale.ROOT, "%-28s %9s %8s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "err %", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (LatencyRecorder.Summary summary : summaries) {
+            System.out.printf(Locale.ROOT, "%-28s %9d %8d %7.2f %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    summary.endpoint(), summary.requests(), summary.errors(), 100 * summary.errorRate(),
+                    summary.throughput(),
+                    summary.p50Millis(), summary.p95Millis(), summary.p99Millis(), summary.maxMillis());
+        }
+    }
+}
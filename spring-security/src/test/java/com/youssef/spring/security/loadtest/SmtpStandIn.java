@@ -0,0 +1,99 @@
+package com.youssef.spring.security.loadtest;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetup;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local SMTP server (GreenMail) the application sends its mail to during a load test, so a run
+ * needs no network. One poller thread reads incoming messages every {@value #POLL_MILLIS} ms and
+ * hands each verification link to the client waiting for that recipient.
+ */
+class SmtpStandIn implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 20;
+    private static final Pattern VERIFY_TOKEN = Pattern.compile("verify-email\\?token=([A-Za-z0-9._~-]+)");
+
+    private final GreenMail greenMail;
+    private final ScheduledExecutorService poller;
+    private final Map<String, CompletableFuture<String>> verificationTokens = new ConcurrentHashMap<>();
+    // Only touched by the poller thread.
+    private final Set<String> seenMessageIds = new HashSet<>();
+
+    SmtpStandIn() {
+        // Accepts whatever credentials spring.mail.* holds, so the app logs in as it would in production.
+        greenMail = new GreenMail(new ServerSetup(freePort(), "127.0.0.1", ServerSetup.PROTOCOL_SMTP))
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        greenMail.start();
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-stand-in-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    int port() {
+        return greenMail.getSmtp().getPort();
+    }
+
+    /**
+     * Completes with the token of the next verification link sent to {@code email}.
+     */
+    CompletableFuture<String> verificationToken(String email) {
+        return verificationTokens.computeIfAbsent(email.toLowerCase(Locale.ROOT), key -> new CompletableFuture<>());
+    }
+
+    private void poll() {
+        try {
+            for (MimeMessage message : greenMail.getReceivedMessages()) {
+                if (!seenMessageIds.add(message.getMessageID())) {
+                    continue;
+                }
+                Matcher matcher = VERIFY_TOKEN.matcher(GreenMailUtil.getBody(message));
+                if (!matcher.find()) {
+                    continue;
+                }
+                for (Address recipient : message.getRecipients(Message.RecipientType.TO)) {
+                    verificationToken(recipient.toString()).complete(matcher.group(1));
+                }
+            }
+        } catch (MessagingException e) {
+            System.err.println("Could not read a message from the SMTP stand-in: " + e.getMessage());
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+        greenMail.stop();
+    }
+}
@@ -0,0 +1,192 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.dto.AuthRequest;
+import com.youssef.spring.security.dto.RegisterRequest;
+import com.youssef.spring.security.entity.EmailVerificationToken;
+import com.youssef.spring.security.entity.PasswordResetToken;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.EmailVerificationTokenRepository;
+import com.youssef.spring.security.repository.PasswordResetTokenRepository;
+import com.youssef.spring.security.repository.UserRepository;
+import com.youssef.spring.security.support.SqlStatementRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the exact SQL each auth flow issues, so an added lazy load or a stray lookup fails here.
+ * Caches are cleared first: the counts are for a cold user cache.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.youssef.spring.security.support.SqlStatementRecorder",
+        "app.security.password.strength=4",
+        "app.mail.outbox.poll-interval-ms=3600000"
+})
+class AuthFlowQueryCountTest {
+
+    private static final Pattern TABLE = Pattern.compile(
+            "^(select)\\b.*?\\bfrom (\\w+)|^(insert) into (\\w+)|^(update) (\\w+)|^(delete) from (\\w+)");
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailVerificationTokenRepository emailVerificationTokenRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private String username;
+
+    @BeforeEach
+    void newUser() {
+        username = "q" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Test
+    void login() {
+        givenRegisteredUser();
+        enable();
+        clearCaches();
+
+        assertStatements(() -> authService.login(loginRequest()), "select users");
+        assertStatements(() -> authService.login(loginRequest()));
+    }
+
+    @Test
+    void register() {
+        clearCaches();
+
+        List<String> statements = record(this::registerUser);
+
+        // The pooled users_seq is only hit once every 50 ids.
+        assertTrue(statements.stream().filter(sql -> sql.contains("users_seq")).count() <= 1);
+        assertEquals(List.of("insert users", "insert email_verification_tokens", "insert email_outbox"),
+                describe(statements.stream().filter(sql -> !sql.contains("users_seq")).toList()));
+    }
+
+    @Test
+    void verifyEmail() {
+        givenRegisteredUser();
+        String token = emailVerificationTokenRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(userId()))
+                .map(EmailVerificationToken::getToken)
+                .findFirst().orElseThrow();
+        clearCaches();
+
+        assertStatements(() -> authService.verifyEmail(token),
+                "select email_verification_tokens", "update users", "delete email_verification_tokens");
+    }
+
+    @Test
+    void forgotPassword() {
+        givenRegisteredUser();
+        clearCaches();
+
+        assertStatements(() -> authService.forgotPassword(username + "@example.com"),
+                "select users", "delete password_reset_tokens", "insert password_reset_tokens", "insert email_outbox");
+    }
+
+    @Test
+    void resetPassword() {
+        givenRegisteredUser();
+        authService.forgotPassword(username + "@example.com");
+        String token = passwordResetTokenRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(userId()))
+                .map(PasswordResetToken::getToken)
+                .findFirst().orElseThrow();
+        clearCaches();
+
+        assertStatements(() -> authService.resetPassword(token, "new-password"),
+                "select password_reset_tokens", "update password_reset_tokens", "update users");
+    }
+
+    private void registerUser() {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setEmail(username + "@example.com");
+        request.setPassword(PASSWORD);
+        authService.register(request);
+    }
+
+    private void givenRegisteredUser() {
+        if (!userRepository.existsByUsername(username)) {
+            registerUser();
+        }
+    }
+
+    private Long userId() {
+        return userRepository.findByUsername(username).orElseThrow().getId();
+    }
+
+    private void enable() {
+        User user = userRepository.findByUsername(username).orElseThrow();
+        user.setEnabled(true);
+        userRepository.save(user);
+    }
+
+    private AuthRequest loginRequest() {
+        AuthRequest request = new AuthRequest();
+        request.setUsername(username);
+        request.setPassword(PASSWORD);
+        return request;
+    }
+
+    private void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    private static void assertStatements(Runnable flow, String... expected) {
+        assertEquals(List.of(expected), describe(record(flow)));
+    }
+
+    private static List<String> record(Runnable flow) {
+        SqlStatementRecorder.start();
+        try {
+            flow.run();
+        } catch (RuntimeException e) {
+            SqlStatementRecorder.stop();
+            throw e;
+        }
+        return SqlStatementRecorder.stop();
+    }
+
+    /**
+     * "select users", "insert email_outbox"...: verb and main table of each statement.
+     */
+    private static List<String> describe(List<String> statements) {
+        List<String> described = new ArrayList<>();
+        for (String sql : statements) {
+            Matcher matcher = TABLE.matcher(sql.toLowerCase(Locale.ROOT).trim());
+            if (!matcher.find()) {
+                described.add(sql);
+                continue;
+            }
+            for (int group = 1; group < matcher.groupCount(); group += 2) {
+                if (matcher.group(group) != null) {
+                    described.add(matcher.group(group) + " " + matcher.group(group + 1));
+                }
+            }
+        }
+        return described;
+    }
+}
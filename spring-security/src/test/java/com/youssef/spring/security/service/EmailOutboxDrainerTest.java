@@ -0,0 +1,96 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.EmailOutboxMessage;
+import com.youssef.spring.security.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = "app.mail.outbox.send-timeout-ms=500")
+class EmailOutboxDrainerTest {
+
+    @Autowired
+    private EmailOutboxDrainer drainer;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @MockBean
+    private EmailService emailService;
+
+    private final Map<String, AtomicInteger> deliveries = new ConcurrentHashMap<>();
+
+    @Test
+    void twoDrainersSendEachMessageOnce() throws Exception {
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recipients.add("once" + i + "@example.com");
+            emailOutboxRepository.save(new EmailOutboxMessage(recipients.get(i), "Subject", "Body"));
+        }
+        when(emailService.deliver(any())).thenAnswer(invocation -> {
+            EmailOutboxMessage message = invocation.getArgument(0);
+            deliveries.computeIfAbsent(message.getRecipient(), recipient -> new AtomicInteger()).incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Both instances read the same due page, then race to claim it.
+        CyclicBarrier start = new CyclicBarrier(2);
+        ExecutorService instances = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                runs.add(instances.submit(() -> {
+                    start.await();
+                    drainer.drain();
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            instances.shutdown();
+        }
+
+        for (String recipient : recipients) {
+            assertEquals(1, deliveries.get(recipient).get(), recipient);
+        }
+        assertTrue(emailOutboxRepository.findAll().stream().noneMatch(m -> recipients.contains(m.getRecipient())));
+    }
+
+    @Test
+    void aHungMailServerHoldsThePageForOneTimeoutOnly() {
+        for (int i = 0; i < 5; i++) {
+            emailOutboxRepository.save(new EmailOutboxMessage("hung" + i + "@example.com", "Subject", "Body"));
+        }
+        when(emailService.deliver(any())).thenAnswer(invocation -> new CompletableFuture<Void>());
+
+        long start = System.nanoTime();
+        drainer.drain();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 1500, "drain took " + elapsedMs + " ms");
+        List<EmailOutboxMessage> retried = emailOutboxRepository.findAll().stream()
+                .filter(m -> m.getRecipient().startsWith("hung")).toList();
+        assertEquals(5, retried.size());
+        assertTrue(retried.stream().allMatch(m -> m.getAttempts() == 1 && m.getLastError().contains("500 ms")));
+    }
+}
@@ -0,0 +1,99 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.EmailVerificationToken;
+import com.youssef.spring.security.entity.PasswordResetToken;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.EmailVerificationTokenRepository;
+import com.youssef.spring.security.repository.PasswordResetTokenRepository;
+import com.youssef.spring.security.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ExpiredTokenReaperTest {
+
+    @Autowired
+    private ExpiredTokenReaper reaper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailVerificationTokenRepository emailVerificationTokenRepository;
+
+    @Autowired
+    private PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void deletesExpiredAndUsedTokensInChunks() {
+        ReflectionTestUtils.setField(reaper, "chunkSize", 2);
+        EmailVerificationToken liveVerification = verificationToken(LocalDateTime.now().plusHours(1));
+        List<Long> expiredVerifications = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expiredVerifications.add(verificationToken(LocalDateTime.now().minusHours(1)).getId());
+        }
+        User user = user();
+        PasswordResetToken liveReset = resetToken(user, LocalDateTime.now().plusHours(1), false);
+        List<Long> deadResets = List.of(
+                resetToken(user, LocalDateTime.now().minusHours(1), false).getId(),
+                resetToken(user, LocalDateTime.now().plusHours(1), true).getId());
+        double purgedBefore = purged();
+
+        reaper.reap();
+
+        assertTrue(emailVerificationTokenRepository.existsById(liveVerification.getId()));
+        assertTrue(emailVerificationTokenRepository.findAllById(expiredVerifications).isEmpty());
+        assertTrue(passwordResetTokenRepository.existsById(liveReset.getId()));
+        assertTrue(passwordResetTokenRepository.findAllById(deadResets).isEmpty());
+        assertTrue(purged() - purgedBefore >= 7);
+    }
+
+    @Test
+    void deleteByUserIdRemovesAllTokensOfTheUser() {
+        User user = user();
+        resetToken(user, LocalDateTime.now().plusHours(1), false);
+        resetToken(user, LocalDateTime.now().plusHours(1), false);
+
+        assertEquals(2, passwordResetTokenRepository.deleteByUserId(user.getId()));
+    }
+
+    private double purged() {
+        return meterRegistry.find("auth.tokens.purged").counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    private EmailVerificationToken verificationToken(LocalDateTime expiryDate) {
+        EmailVerificationToken token = new EmailVerificationToken(UUID.randomUUID().toString(), user());
+        token.setExpiryDate(expiryDate);
+        return emailVerificationTokenRepository.save(token);
+    }
+
+    private PasswordResetToken resetToken(User user, LocalDateTime expiryDate, boolean used) {
+        PasswordResetToken token = new PasswordResetToken(UUID.randomUUID().toString(), user);
+        token.setExpiryDate(expiryDate);
+        token.setUsed(used);
+        return passwordResetTokenRepository.save(token);
+    }
+
+    private User user() {
+        String name = "reaper-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("{noop}password");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,141 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.config.OAuth2AuthenticationSuccessHandler;
+import com.youssef.spring.security.entity.AuthProvider;
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import com.youssef.spring.security.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.security.password.strength=4")
+class FederatedUserServiceTest {
+
+    @Autowired
+    private FederatedUserService federatedUserService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private OAuth2AuthenticationSuccessHandler successHandler;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void upsertsOneEnabledUserPerProviderAccount() {
+        User created = federatedUserService.provision(AuthProvider.GOOGLE, "g-100", "ada@example.com");
+        // Cached under the old email, as a forgot-password request would leave them.
+        assertEquals(created.getId(), userService.findByEmail("ada@example.com").getId());
+        assertTrue(userService.existsByEmail("ada@example.com"));
+        User again = federatedUserService.provision(AuthProvider.GOOGLE, "g-100", "ada.lovelace@example.com");
+
+        assertEquals(created.getId(), again.getId());
+        assertEquals("google_g-100", again.getUsername());
+        assertEquals("ada.lovelace@example.com", again.getEmail());
+        assertTrue(again.isEnabled());
+        assertEquals(AuthProvider.GOOGLE, again.getAuthProvider());
+        // The email change evicted the cached user the JWT filter loads.
+        assertEquals("ada.lovelace@example.com",
+                ((User) userService.loadUserByUsername("google_g-100")).getEmail());
+        assertFalse(userService.existsByEmail("ada@example.com"));
+        assertThrows(RuntimeException.class, () -> userService.findByEmail("ada@example.com"));
+        // Same id at another provider is another account.
+        assertFalse(created.getId().equals(federatedUserService.provision(AuthProvider.GITHUB, "g-100", null).getId()));
+    }
+
+    @Test
+    void concurrentFirstLoginsCreateASingleUser() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Set<Long> ids = new HashSet<>();
+            for (Future<Long> id : pool.invokeAll(IntStream.range(0, 8)
+                    .mapToObj(i -> (Callable<Long>) () -> federatedUserService
+                            .provision(AuthProvider.GITHUB, "race-1", "race@example.com").getId())
+                    .toList())) {
+                ids.add(id.get());
+            }
+            assertEquals(1, ids.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void neverTakesOverALocalAccount() {
+        User local = new User();
+        local.setUsername("grace");
+        local.setEmail("grace@example.com");
+        local.setPassword("{noop}password");
+        userRepository.save(local);
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> federatedUserService.provision(AuthProvider.GOOGLE, "g-200", "grace@example.com"));
+        assertEquals("Email is already registered with another sign-in method", e.getMessage());
+        assertTrue(FederatedUserService.isReservedUsername("GitHub_42"));
+        assertFalse(FederatedUserService.isReservedUsername("grace"));
+    }
+
+    @Test
+    void successHandlerIssuesATokenForTheStoredUser() throws Exception {
+        DefaultOAuth2User principal = new DefaultOAuth2User(AuthorityUtils.createAuthorityList("OAUTH2_USER"),
+                Map.of("sub", "g-300", "email", "linus@example.com"), "sub");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        successHandler.onAuthenticationSuccess(new MockHttpServletRequest(), response,
+                new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+
+        String token = UriComponentsBuilder.fromUriString(response.getRedirectedUrl()).build()
+                .getQueryParams().getFirst("token");
+        String username = jwtUtil.verifyToken(token).getUsername();
+        assertEquals("google_g-300", username);
+        assertEquals("linus@example.com", ((User) userService.loadUserByUsername(username)).getEmail());
+    }
+
+    @Test
+    void successHandlerRedirectsWithAFixedErrorCode() throws Exception {
+        User local = new User();
+        local.setUsername("margaret");
+        local.setEmail("margaret@example.com");
+        local.setPassword("{noop}password");
+        userRepository.save(local);
+        DefaultOAuth2User principal = new DefaultOAuth2User(AuthorityUtils.createAuthorityList("OAUTH2_USER"),
+                Map.of("sub", "g-400", "email", "margaret@example.com"), "sub");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        successHandler.onAuthenticationSuccess(new MockHttpServletRequest(), response,
+                new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+
+        MultiValueMap<String, String> query = UriComponentsBuilder.fromUriString(response.getRedirectedUrl()).build()
+                .getQueryParams();
+        assertEquals("email_taken", query.getFirst("error"));
+        assertNull(query.getFirst("token"));
+    }
+}
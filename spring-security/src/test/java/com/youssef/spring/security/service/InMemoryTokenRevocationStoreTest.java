@@ -0,0 +1,36 @@
+package com.youssef.spring.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTokenRevocationStoreTest {
+
+    private final InMemoryTokenRevocationStore store = new InMemoryTokenRevocationStore(60, new SimpleMeterRegistry());
+
+    @Test
+    void revokedIdsStayRevokedUntilTheirBucketHasExpired() {
+        Instant now = Instant.now();
+        store.revoke("short", now.plus(Duration.ofMinutes(5)));
+        store.revoke("long", now.plus(Duration.ofHours(24)));
+        store.revoke("already-expired", now.minusSeconds(1));
+
+        assertTrue(store.isRevoked("short"));
+        assertTrue(store.isRevoked("long"));
+        assertFalse(store.isRevoked("already-expired"));
+
+        store.purgeExpired(now.plus(Duration.ofMinutes(4)).toEpochMilli());
+        assertTrue(store.isRevoked("short"));
+
+        store.purgeExpired(now.plus(Duration.ofMinutes(7)).toEpochMilli());
+        assertFalse(store.isRevoked("short"));
+        assertTrue(store.isRevoked("long"));
+        assertEquals(1, store.size());
+    }
+}
@@ -0,0 +1,65 @@
+package com.youssef.spring.security.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LastLoginRecorderTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LastLoginRecorder recorder = new LastLoginRecorder(jdbcTemplate, meterRegistry);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writesOnlyTheLatestLoginPerUserInOneBatch() {
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 8, 0);
+        recorder.record(1L, first);
+        recorder.record(1L, first.plusMinutes(5));
+        recorder.record(1L, first.plusMinutes(2));
+        recorder.record(2L, first);
+
+        recorder.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(LastLoginRecorder.UPDATE_SQL), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        for (Object[] row : batch.getValue()) {
+            LocalDateTime expected = row[1].equals(1L) ? first.plusMinutes(5) : first;
+            assertEquals(Timestamp.valueOf(expected), row[0]);
+        }
+        assertEquals(2, meterRegistry.counter("auth.last_login.coalesced").count());
+        assertEquals(2, meterRegistry.counter("auth.last_login.written").count());
+
+        recorder.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(LastLoginRecorder.UPDATE_SQL), anyList());
+    }
+
+    @Test
+    void keepsTimestampsForTheNextFlushWhenTheBatchFails() {
+        when(jdbcTemplate.batchUpdate(eq(LastLoginRecorder.UPDATE_SQL), anyList()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(new int[]{1});
+        recorder.record(1L, LocalDateTime.now());
+
+        recorder.flush();
+        recorder.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(LastLoginRecorder.UPDATE_SQL), anyList());
+        assertEquals(1, meterRegistry.counter("auth.last_login.written").count());
+    }
+}
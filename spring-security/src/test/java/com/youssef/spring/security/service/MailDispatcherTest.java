@@ -0,0 +1,91 @@
+package com.youssef.spring.security.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Test
+    void sendsQueuedMessagesInBatchesOverOneConnectionEach() throws Exception {
+        CountingMailSender mailSender = new CountingMailSender(ServerSetupTest.SMTP.getPort());
+        MailDispatcher dispatcher = new MailDispatcher(mailSender, 10, 200, 100);
+        dispatcher.start();
+
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add(dispatcher.submit(message(mailSender, "user" + i + "@example.com")));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        dispatcher.stop();
+
+        assertEquals(25, greenMail.getReceivedMessages().length);
+        assertTrue(mailSender.batches.get() <= 3, "expected at most 3 batches, got " + mailSender.batches.get());
+    }
+
+    @Test
+    void failsTheMessageOnTheFirstErrorAndLeavesRetriesToTheOutbox() throws Exception {
+        CountingMailSender mailSender = new CountingMailSender(unusedPort());
+        MailDispatcher dispatcher = new MailDispatcher(mailSender, 10, 10, 100);
+        dispatcher.start();
+
+        CompletableFuture<Void> result = dispatcher.submit(message(mailSender, "user@example.com"));
+
+        assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertEquals(1, mailSender.batches.get());
+        dispatcher.stop();
+    }
+
+    private static MimeMessage message(JavaMailSenderImpl mailSender, String to) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message);
+        helper.setFrom("noreply@example.com");
+        helper.setTo(to);
+        helper.setSubject("Email Verification");
+        helper.setText("token");
+        return message;
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class CountingMailSender extends JavaMailSenderImpl {
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        CountingMailSender(int port) {
+            setHost("localhost");
+            setPort(port);
+        }
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+            batches.incrementAndGet();
+            super.doSend(mimeMessages, originalMessages);
+        }
+    }
+}
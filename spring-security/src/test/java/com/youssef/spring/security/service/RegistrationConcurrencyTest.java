@@ -0,0 +1,86 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.dto.RegisterRequest;
+import com.youssef.spring.security.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "app.security.password.strength=4",
+        "app.security.rate-limit.enabled=false",
+        "spring.jpa.show-sql=false",
+        "app.mail.outbox.poll-interval-ms=3600000"
+})
+class RegistrationConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void onlyOneOfConcurrentRegistrationsWithTheSameUsernameSucceeds() throws Exception {
+        List<String> outcomes = registerConcurrently(i -> request("racer", "racer" + i + "@example.com"));
+
+        assertEquals(1, outcomes.stream().filter("ok"::equals).count());
+        assertEquals(THREADS - 1, outcomes.stream().filter("Username is already taken!"::equals).count());
+        assertEquals(1, userRepository.findAll().stream().filter(u -> u.getUsername().equals("racer")).count());
+    }
+
+    @Test
+    void onlyOneOfConcurrentRegistrationsWithTheSameEmailSucceeds() throws Exception {
+        List<String> outcomes = registerConcurrently(i -> request("shared" + i, "shared@example.com"));
+
+        assertEquals(1, outcomes.stream().filter("ok"::equals).count());
+        assertEquals(THREADS - 1, outcomes.stream().filter("Email is already in use!"::equals).count());
+    }
+
+    private List<String> registerConcurrently(IntFunction<RegisterRequest> requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            RegisterRequest request = requests.apply(i);
+            Callable<String> task = () -> {
+                start.await();
+                try {
+                    authService.register(request);
+                    return "ok";
+                } catch (RuntimeException e) {
+                    return e.getMessage();
+                }
+            };
+            results.add(executor.submit(task));
+        }
+        start.countDown();
+        List<String> outcomes = new ArrayList<>();
+        for (Future<String> result : results) {
+            outcomes.add(result.get());
+        }
+        executor.shutdown();
+        return outcomes;
+    }
+
+    private static RegisterRequest request(String username, String email) {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setEmail(email);
+        request.setPassword("password");
+        return request;
+    }
+}
@@ -0,0 +1,38 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TokenVersionServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final TokenVersionService tokenVersionService = new TokenVersionService(userRepository);
+
+    @Test
+    void rejectsTokensRevokedBeforeStartupFromTheFirstRequest() {
+        ReflectionTestUtils.setField(tokenVersionService, "statelessEnabled", true);
+        when(userRepository.findBumpedTokenVersions()).thenReturn(List.<Object[]>of(new Object[]{7L, 2}));
+
+        tokenVersionService.load();
+
+        assertFalse(tokenVersionService.isCurrent(7L, 1));
+        assertTrue(tokenVersionService.isCurrent(7L, 2));
+        assertTrue(tokenVersionService.isCurrent(8L, 0));
+    }
+
+    @Test
+    void skipsTheLoadOutsideStatelessMode() {
+        tokenVersionService.load();
+
+        verifyNoInteractions(userRepository);
+    }
+}
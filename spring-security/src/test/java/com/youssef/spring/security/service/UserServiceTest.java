@@ -0,0 +1,66 @@
+package com.youssef.spring.security.service;
+
+import com.youssef.spring.security.entity.User;
+import com.youssef.spring.security.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(properties = "app.security.password.strength=4")
+class UserServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everyCacheHitIsItsOwnCopy() {
+        userRepository.save(user("copied"));
+
+        User first = (User) userService.loadUserByUsername("copied");
+        first.setLastLogin(LocalDateTime.now());
+        User second = (User) userService.loadUserByUsername("copied");
+
+        assertNotSame(first, second);
+        assertNull(second.getLastLogin());
+    }
+
+    @Test
+    void passwordUpgradeKeepsColumnsWrittenSinceTheUserWasCached() {
+        userRepository.save(user("rehashed"));
+        User cached = (User) userService.loadUserByUsername("rehashed");
+        // Written behind the cached copy, as the lockout and the last-login batch do.
+        userRepository.recordLoginFailure("rehashed", 5, LocalDateTime.now());
+        LocalDateTime lastLogin = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        jdbcTemplate.update("UPDATE users SET last_login = ? WHERE username = 'rehashed'", lastLogin);
+
+        userService.updatePassword(cached, "{noop}upgraded");
+
+        User stored = userRepository.findById(cached.getId()).orElseThrow();
+        assertEquals("{noop}upgraded", stored.getPassword());
+        assertEquals(1, stored.getFailedLoginAttempts());
+        assertEquals(lastLogin, stored.getLastLogin());
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("{noop}password");
+        user.setEnabled(true);
+        return user;
+    }
+}
@@ -0,0 +1,37 @@
+package com.youssef.spring.security.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL that Hibernate prepares on the current thread between {@link #start()} and
+ * {@link #stop()}. Statements from other threads (schedulers, the mail drainer) are ignored, so
+ * counts stay exact while the rest of the application keeps running.
+ * <p>
+ * Enabled with {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}.
+ */
+public class SqlStatementRecorder implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+    public static void start() {
+        RECORDED.set(new ArrayList<>());
+    }
+
+    public static List<String> stop() {
+        List<String> statements = RECORDED.get();
+        RECORDED.remove();
+        return statements == null ? List.of() : statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = RECORDED.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+}
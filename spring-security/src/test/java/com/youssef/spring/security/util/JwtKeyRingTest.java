@@ -0,0 +1,141 @@
+package com.youssef.spring.security.util;
+
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtKeyRingTest {
+
+    private static final long LIFETIME_MS = 60_000;
+
+    @Test
+    void otherServicesVerifyTokensWithTheJwksAlone() throws Exception {
+        JwtKeyRing keyRing = keyRing("RS256");
+        String token = jwtUtil(keyRing).generateToken("alice");
+
+        List<Map<String, Object>> keys = keys(keyRing);
+        assertEquals(2, keys.size(), "active and next key");
+        String kid = Jwts.parserBuilder().build()
+                .parseClaimsJwt(token.substring(0, token.lastIndexOf('.') + 1)).getHeader().get("kid").toString();
+        Map<String, Object> jwk = keys.stream().filter(k -> kid.equals(k.get("kid"))).findFirst().orElseThrow();
+
+        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                unsigned(jwk.get("n")), unsigned(jwk.get("e"))));
+        assertEquals("alice", Jwts.parserBuilder().setSigningKey(publicKey).build()
+                .parseClaimsJws(token).getBody().getSubject());
+    }
+
+    @Test
+    void retiredKeysVerifyForOneTokenLifetime() {
+        JwtKeyRing keyRing = keyRing("ES256");
+        JwtUtil jwtUtil = jwtUtil(keyRing);
+        String token = jwtUtil.generateToken("alice");
+        String nextKid = keys(keyRing).get(1).get("kid").toString();
+        long now = System.currentTimeMillis();
+
+        keyRing.rotate(now);
+        assertEquals(nextKid, keyRing.signingKey().kid());
+        assertTrue(jwtUtil.verifyToken(token).isValid());
+        assertTrue(jwtUtil.verifyToken(jwtUtil.generateToken("bob")).isValid());
+        assertEquals(3, keys(keyRing).size(), "active, next and retired key");
+
+        keyRing.rotate(now + LIFETIME_MS);
+        assertEquals(JwtVerification.Failure.INVALID_SIGNATURE, jwtUtil.verifyToken(token).getFailure());
+    }
+
+    @Test
+    void instancesSharingAKeystoreFollowItsStartDates(@TempDir Path dir) throws Exception {
+        Path keystore = dir.resolve("jwt.p12");
+        // Each key's certificate start date is when it starts signing.
+        addKey(keystore, "retired", "-2d");
+        addKey(keystore, "current", "-1d");
+        addKey(keystore, "upcoming", "+1d");
+        JwtKeyRing nodeA = keyRing("ES256", keystore);
+        JwtKeyRing nodeB = keyRing("ES256", keystore);
+
+        assertEquals("current", nodeA.signingKey().kid());
+        assertEquals(3, keys(nodeA).size(), "current, upcoming and retired key");
+        String token = jwtUtil(nodeA).generateToken("alice");
+        assertTrue(jwtUtil(nodeB).verifyToken(token).isValid());
+
+        nodeB.refreshKeystore(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(2));
+        assertEquals("upcoming", nodeB.signingKey().kid());
+        assertTrue(jwtUtil(nodeB).verifyToken(token).isValid());
+        assertTrue(jwtUtil(nodeA).verifyToken(jwtUtil(nodeB).generateToken("bob")).isValid());
+    }
+
+    @Test
+    void sharedSecretModePublishesNothing() {
+        JwtKeyRing keyRing = keyRing("HS256");
+        JwtUtil jwtUtil = jwtUtil(keyRing);
+
+        assertNull(keyRing.signingKey().kid());
+        assertTrue(keys(keyRing).isEmpty());
+        assertTrue(jwtUtil.verifyToken(jwtUtil.generateToken("alice")).isValid());
+        assertEquals(JwtVerification.Failure.INVALID_SIGNATURE,
+                jwtUtil.verifyToken(jwtUtil(keyRing("ES256")).generateToken("alice")).getFailure());
+    }
+
+    private static JwtKeyRing keyRing(String algorithm) {
+        JwtKeyRing keyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "algorithm", algorithm);
+        ReflectionTestUtils.setField(keyRing, "secret", "mySecretKey12345678901234567890123456789012345678901234567890");
+        ReflectionTestUtils.setField(keyRing, "tokenLifetimeMs", LIFETIME_MS);
+        keyRing.init();
+        return keyRing;
+    }
+
+    private static JwtKeyRing keyRing(String algorithm, Path keystore) {
+        JwtKeyRing keyRing = new JwtKeyRing();
+        ReflectionTestUtils.setField(keyRing, "algorithm", algorithm);
+        ReflectionTestUtils.setField(keyRing, "tokenLifetimeMs", LIFETIME_MS);
+        ReflectionTestUtils.setField(keyRing, "keystoreLocation", keystore.toUri().toString());
+        ReflectionTestUtils.setField(keyRing, "keystorePassword", "changeit");
+        keyRing.init();
+        return keyRing;
+    }
+
+    private static void addKey(Path keystore, String alias, String startDate) throws Exception {
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-keystore", keystore.toString(), "-storetype", "PKCS12", "-storepass", "changeit",
+                "-alias", alias, "-keyalg", "EC", "-groupname", "secp256r1", "-dname", "CN=jwt",
+                "-startdate", startDate, "-validity", "30")
+                .redirectErrorStream(true)
+                .start();
+        keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+        assertEquals(0, keytool.waitFor(), "keytool " + alias);
+    }
+
+    private static JwtUtil jwtUtil(JwtKeyRing keyRing) {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry(), keyRing);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", LIFETIME_MS);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> keys(JwtKeyRing keyRing) {
+        return (List<Map<String, Object>>) keyRing.getJwks().get("keys");
+    }
+
+    private static BigInteger unsigned(Object base64url) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(base64url.toString()));
+    }
+}
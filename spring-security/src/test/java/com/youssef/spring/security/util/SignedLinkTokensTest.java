@@ -0,0 +1,62 @@
+package com.youssef.spring.security.util;
+
+import com.youssef.spring.security.entity.User;
+import org.junit.jupiter.api.Test;
+
+import static com.youssef.spring.security.util.SignedLinkTokens.Purpose.EMAIL_VERIFICATION;
+import static com.youssef.spring.security.util.SignedLinkTokens.Purpose.PASSWORD_RESET;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SignedLinkTokensTest {
+
+    private final SignedLinkTokens tokens = new SignedLinkTokens("secret", 60_000, 1000);
+
+    @Test
+    void verifiesItsOwnTokensWithoutAnyLookup() {
+        User user = user();
+        SignedLinkTokens.Verification verification = tokens.verify(tokens.issue(EMAIL_VERIFICATION, user), EMAIL_VERIFICATION);
+
+        assertTrue(verification.isValid());
+        assertEquals(42L, verification.getUserId());
+        assertTrue(tokens.matches(verification, user));
+    }
+
+    @Test
+    void rejectsTamperedForeignExpiredAndMisusedTokens() {
+        User user = user();
+        String token = tokens.issue(PASSWORD_RESET, user);
+        String tampered = token.substring(0, 10) + (token.charAt(10) == 'A' ? 'B' : 'A') + token.substring(11);
+
+        assertEquals(SignedLinkTokens.Failure.INVALID_SIGNATURE, tokens.verify(tampered, PASSWORD_RESET).getFailure());
+        assertEquals(SignedLinkTokens.Failure.INVALID_SIGNATURE,
+                new SignedLinkTokens("other-secret", 60_000, 1000).verify(token, PASSWORD_RESET).getFailure());
+        assertEquals(SignedLinkTokens.Failure.WRONG_PURPOSE, tokens.verify(token, EMAIL_VERIFICATION).getFailure());
+        assertEquals(SignedLinkTokens.Failure.MALFORMED, tokens.verify("not.a-token", PASSWORD_RESET).getFailure());
+
+        SignedLinkTokens expiring = new SignedLinkTokens("secret", -1, 1000);
+        assertEquals(SignedLinkTokens.Failure.EXPIRED,
+                expiring.verify(expiring.issue(PASSWORD_RESET, user), PASSWORD_RESET).getFailure());
+    }
+
+    @Test
+    void resetTokenIsSingleUseAndDiesWithThePassword() {
+        User user = user();
+        SignedLinkTokens.Verification verification = tokens.verify(tokens.issue(PASSWORD_RESET, user), PASSWORD_RESET);
+
+        assertTrue(tokens.markUsed(verification));
+        assertFalse(tokens.markUsed(verification));
+
+        user.setPassword("{bcrypt}new-hash");
+        assertFalse(tokens.matches(verification, user));
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(42L);
+        user.setEmail("user@example.com");
+        user.setPassword("{bcrypt}old-hash");
+        return user;
+    }
+}